@@ -0,0 +1,255 @@
+package fr.pederobien.minecraft.managers;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+public abstract class AbstractPlayerDataStore<V> extends EventListener {
+	private static final int DEFAULT_CAPACITY = 16;
+
+	private UUID[] keys;
+	private int size, mask;
+	private volatile Map<UUID, V> snapshot;
+
+	/**
+	 * Create a store whose keys are the unique identifier of players. Keys are stored in an open addressing table, using linear
+	 * probing, in order to avoid an entry object per player. Once registered on the server, the entry of a player is removed when it
+	 * leaves the server. This store must be modified from the main thread, asynchronous readers should use {@link #getSnapshot()}.
+	 */
+	protected AbstractPlayerDataStore() {
+		keys = new UUID[DEFAULT_CAPACITY];
+		mask = DEFAULT_CAPACITY - 1;
+		snapshot = Collections.emptyMap();
+		setActivated(true);
+	}
+
+	/**
+	 * @return The number of players associated to a value in this store.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return True if no player is associated to a value in this store, false otherwise.
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * @param uuid The unique identifier of a player.
+	 * @return True if the player associated to the identifier is associated to a value in this store, false otherwise.
+	 */
+	public boolean containsKey(UUID uuid) {
+		return find(uuid) >= 0;
+	}
+
+	/**
+	 * @param player A player.
+	 * @return True if the player is associated to a value in this store, false otherwise.
+	 */
+	public boolean containsKey(Player player) {
+		return containsKey(player.getUniqueId());
+	}
+
+	/**
+	 * Remove the value associated to the player associated to the given identifier.
+	 *
+	 * @param uuid The unique identifier of a player.
+	 * @return True if a value was associated to the player, false otherwise.
+	 */
+	public boolean remove(UUID uuid) {
+		int slot = find(uuid);
+		if (slot < 0)
+			return false;
+
+		removeAt(slot);
+		return true;
+	}
+
+	/**
+	 * Remove the value associated to the given player.
+	 *
+	 * @param player A player.
+	 * @return True if a value was associated to the player, false otherwise.
+	 */
+	public boolean remove(Player player) {
+		return remove(player.getUniqueId());
+	}
+
+	/**
+	 * Remove each value of this store.
+	 */
+	public void clear() {
+		Arrays.fill(keys, null);
+		clearValues();
+		size = 0;
+	}
+
+	/**
+	 * Copy the content of this store into an unmodifiable map returned by {@link #getSnapshot()} until the next publication.
+	 *
+	 * @return The published snapshot.
+	 */
+	public Map<UUID, V> publish() {
+		Map<UUID, V> snapshot = new HashMap<UUID, V>(size * 4 / 3 + 1);
+		for (int i = 0; i < keys.length; i++)
+			if (keys[i] != null)
+				snapshot.put(keys[i], box(i));
+		return this.snapshot = Collections.unmodifiableMap(snapshot);
+	}
+
+	/**
+	 * Get the last snapshot published by {@link #publish()}. This method can be called from any thread.
+	 *
+	 * @return An unmodifiable map that contains the content of this store during the last publication.
+	 */
+	public Map<UUID, V> getSnapshot() {
+		return snapshot;
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR)
+	public void onPlayerQuit(PlayerQuitEvent event) {
+		if (isActivated())
+			remove(event.getPlayer().getUniqueId());
+	}
+
+	/**
+	 * @return The number of slots of this store, the length of the arrays of values.
+	 */
+	protected int capacity() {
+		return keys.length;
+	}
+
+	/**
+	 * Get the slot of the given key.
+	 *
+	 * @param key The unique identifier of a player.
+	 * @return The slot of the key, -1 if the key is not in this store.
+	 */
+	protected int find(UUID key) {
+		for (int i = hash(key) & mask;; i = (i + 1) & mask) {
+			UUID current = keys[i];
+			if (current == null)
+				return -1;
+			if (current.equals(key))
+				return i;
+		}
+	}
+
+	/**
+	 * Get the slot of the given key, the key is added if it is not in this store. The values of a new slot are the default values.
+	 *
+	 * @param key The unique identifier of a player.
+	 * @return The slot of the key.
+	 */
+	protected int insert(UUID key) {
+		int slot = find(key);
+		if (slot >= 0)
+			return slot;
+
+		if ((size + 1) * 4 > keys.length * 3)
+			rehash(keys.length * 2);
+
+		slot = probe(key);
+		keys[slot] = key;
+		size++;
+		return slot;
+	}
+
+	/**
+	 * Remove the key and the values of the given slot. The following keys of the same cluster are shifted back so that no tombstone
+	 * is needed.
+	 *
+	 * @param slot The slot to remove.
+	 */
+	protected void removeAt(int slot) {
+		int gap = slot;
+		for (int i = (slot + 1) & mask; keys[i] != null; i = (i + 1) & mask) {
+			int ideal = hash(keys[i]) & mask;
+			if (((i - ideal) & mask) >= ((i - gap) & mask)) {
+				keys[gap] = keys[i];
+				move(i, gap);
+				gap = i;
+			}
+		}
+
+		keys[gap] = null;
+		clear(gap);
+		size--;
+	}
+
+	/**
+	 * Reallocate the values of this store.
+	 *
+	 * @param slots    The new slot of each old slot, -1 if the old slot was empty.
+	 * @param capacity The new capacity of this store.
+	 */
+	protected abstract void rehash(int[] slots, int capacity);
+
+	/**
+	 * Move the values from a slot to another one.
+	 *
+	 * @param from The slot to move.
+	 * @param to   The new slot of the values.
+	 */
+	protected abstract void move(int from, int to);
+
+	/**
+	 * Reset the values of the given slot to the default values.
+	 *
+	 * @param slot The slot to reset.
+	 */
+	protected abstract void clear(int slot);
+
+	/**
+	 * Reset the values of each slot to the default values.
+	 */
+	protected abstract void clearValues();
+
+	/**
+	 * @param slot A slot used by a key.
+	 * @return The value of the slot to publish in the snapshot.
+	 */
+	protected abstract V box(int slot);
+
+	private void rehash(int capacity) {
+		UUID[] old = keys;
+		keys = new UUID[capacity];
+		mask = capacity - 1;
+
+		int[] slots = new int[old.length];
+		for (int i = 0; i < old.length; i++) {
+			if (old[i] == null) {
+				slots[i] = -1;
+				continue;
+			}
+
+			slots[i] = probe(old[i]);
+			keys[slots[i]] = old[i];
+		}
+		rehash(slots, capacity);
+	}
+
+	private int probe(UUID key) {
+		int i = hash(key) & mask;
+		while (keys[i] != null)
+			i = (i + 1) & mask;
+		return i;
+	}
+
+	private static int hash(UUID key) {
+		long bits = key.getMostSignificantBits() ^ key.getLeastSignificantBits();
+		int hash = (int) (bits ^ (bits >>> 32));
+		hash *= 0x9E3779B9;
+		return hash ^ (hash >>> 16);
+	}
+}
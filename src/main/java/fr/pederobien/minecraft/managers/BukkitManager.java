@@ -5,6 +5,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.UUID;
 import java.util.stream.Stream;
 
 import org.bukkit.Bukkit;
@@ -70,6 +71,28 @@ public class BukkitManager {
 		return Bukkit.getPlayer(name);
 	}
 
+	/**
+	 * Gets the player with the exact given name, case insensitive.
+	 *
+	 * @param name Exact name of the player to retrieve
+	 * @return a player object if one was found, null otherwise
+	 */
+	public static Player getPlayerExact(String name) {
+		return Bukkit.getPlayerExact(name);
+	}
+
+	/**
+	 * Gets a player object by the given unique identifier.
+	 * <p>
+	 * This method may not return objects for offline players.
+	 *
+	 * @param id the unique identifier to look up
+	 * @return a player if one was found, null otherwise
+	 */
+	public static Player getPlayer(UUID id) {
+		return Bukkit.getPlayer(id);
+	}
+
 	/**
 	 * Gets a {@link ConsoleCommandSender} that may be used as an input source for this server.
 	 *
@@ -190,4 +213,13 @@ public class BukkitManager {
 	public static BukkitScheduler getScheduler() {
 		return Bukkit.getScheduler();
 	}
+
+	/**
+	 * Checks the current thread against the expected primary thread for the server.
+	 *
+	 * @return true if the current thread matches the expected primary thread, false otherwise
+	 */
+	public static boolean isPrimaryThread() {
+		return Bukkit.isPrimaryThread();
+	}
 }
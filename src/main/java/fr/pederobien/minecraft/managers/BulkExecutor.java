@@ -0,0 +1,287 @@
+package fr.pederobien.minecraft.managers;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+
+public class BulkExecutor {
+	private Plugin plugin;
+	private long budget;
+	private Deque<Batch> batches;
+	private BukkitTask task;
+
+	/**
+	 * Create an executor that applies operations on players, or on other elements, across several ticks. Each tick, operations are
+	 * applied until the given budget is consumed. At least one operation is applied per tick so that each batch always progresses.
+	 *
+	 * @param plugin The plugin that owns the task draining the operations.
+	 * @param budget The time, in milliseconds, the executor can spend per tick.
+	 */
+	public BulkExecutor(Plugin plugin, double budget) {
+		this.plugin = plugin;
+		setBudget(budget);
+		batches = new ArrayDeque<Batch>();
+	}
+
+	/**
+	 * Set the time the executor can spend per tick.
+	 *
+	 * @param budget The time, in milliseconds, the executor can spend per tick.
+	 */
+	public void setBudget(double budget) {
+		if (budget <= 0)
+			throw new IllegalArgumentException("The budget must be strictly positive");
+		this.budget = (long) (budget * 1000000);
+	}
+
+	/**
+	 * @return The time, in milliseconds, the executor can spend per tick.
+	 */
+	public double getBudget() {
+		return budget / 1000000.0;
+	}
+
+	/**
+	 * @return The plugin that owns the task draining the operations.
+	 */
+	public Plugin getPlugin() {
+		return plugin;
+	}
+
+	/**
+	 * Queue the given operation for each element of the list. The operation is not applied on elements rejected by the filter when
+	 * their turn comes. This method must be called from the main thread.
+	 *
+	 * @param <T>       The type of the elements.
+	 * @param elements  The elements on which the operation is applied.
+	 * @param filter    The filter tested on each element just before applying the operation.
+	 * @param operation The operation to apply.
+	 *
+	 * @return The batch that contains the progress of the operations.
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> Batch submit(List<T> elements, Predicate<? super T> filter, Consumer<? super T> operation) {
+		// The batch only passes to the filter and to the operation the elements of the list.
+		Batch batch = new Batch(new ArrayList<Object>(elements), (Predicate<Object>) filter, (Consumer<Object>) operation);
+		if (batch.total == 0) {
+			batch.future.complete(batch);
+			return batch;
+		}
+
+		batches.add(batch);
+		if (task == null)
+			task = BukkitManager.getScheduler().runTaskTimer(plugin, () -> drain(), 0, 1);
+		return batch;
+	}
+
+	/**
+	 * Queue the given operation for each player of the list. The operation is not applied on players who left the server before
+	 * their turn. This method must be called from the main thread.
+	 *
+	 * @param players   The players on which the operation is applied.
+	 * @param operation The operation to apply.
+	 *
+	 * @return The batch that contains the progress of the operations.
+	 */
+	public Batch submit(List<Player> players, Consumer<Player> operation) {
+		return submit(players, Player::isOnline, operation);
+	}
+
+	/**
+	 * Queue the given operation for each player of the stream.
+	 *
+	 * @param players   The players on which the operation is applied.
+	 * @param operation The operation to apply.
+	 *
+	 * @return The batch that contains the progress of the operations.
+	 *
+	 * @see #submit(List, Consumer)
+	 */
+	public Batch submit(Stream<Player> players, Consumer<Player> operation) {
+		return submit(players.collect(Collectors.toList()), operation);
+	}
+
+	/**
+	 * @return The number of batches not completed yet.
+	 */
+	public int getPendingBatches() {
+		return batches.size();
+	}
+
+	/**
+	 * Cancel each pending batch. The future of each of them is cancelled.
+	 */
+	public void cancel() {
+		while (!batches.isEmpty())
+			batches.poll().future.cancel(false);
+		stop();
+	}
+
+	private void drain() {
+		long start = System.nanoTime();
+		boolean first = true;
+		while (!batches.isEmpty() && (first || System.nanoTime() - start < budget)) {
+			Batch batch = batches.peek();
+			batch.apply(start);
+			if (batch.isDone()) {
+				batches.poll();
+				batch.complete();
+			}
+			first = false;
+		}
+
+		for (Batch batch : batches)
+			batch.ticks++;
+
+		if (batches.isEmpty())
+			stop();
+	}
+
+	private void stop() {
+		if (task == null)
+			return;
+
+		task.cancel();
+		task = null;
+	}
+
+	public class Batch {
+		private List<Object> elements;
+		private Predicate<Object> filter;
+		private Consumer<Object> operation;
+		private CompletableFuture<Batch> future;
+		private int total, applied, skipped, failed, ticks;
+		private long time;
+		private RuntimeException error;
+
+		private Batch(List<Object> elements, Predicate<Object> filter, Consumer<Object> operation) {
+			this.elements = elements;
+			this.filter = filter;
+			this.operation = operation;
+			future = new CompletableFuture<Batch>();
+			total = elements.size();
+			ticks = 0;
+		}
+
+		/**
+		 * @return A future completed once the operation has been applied on each element. If at least one operation failed, the future
+		 *         is completed exceptionally with the first error.
+		 */
+		public CompletableFuture<Batch> getFuture() {
+			return future;
+		}
+
+		/**
+		 * @return The number of elements of this batch.
+		 */
+		public int getTotal() {
+			return total;
+		}
+
+		/**
+		 * @return The number of elements on which the operation has been applied.
+		 */
+		public int getApplied() {
+			return applied;
+		}
+
+		/**
+		 * @return The number of elements skipped because they were rejected by the filter, for instance players who left the server
+		 *         before their turn.
+		 */
+		public int getSkipped() {
+			return skipped;
+		}
+
+		/**
+		 * @return The number of elements for which the operation has thrown an exception.
+		 */
+		public int getFailed() {
+			return failed;
+		}
+
+		/**
+		 * @return The ratio, between 0 and 1, of elements already processed.
+		 */
+		public double getProgress() {
+			return total == 0 ? 1 : (double) (applied + skipped + failed) / total;
+		}
+
+		/**
+		 * @return The number of ticks this batch has been waiting or running.
+		 */
+		public int getTicks() {
+			return ticks;
+		}
+
+		/**
+		 * @return The time, in nanoseconds, spent to apply the operation.
+		 */
+		public long getTime() {
+			return time;
+		}
+
+		/**
+		 * @return True if each element of this batch has been processed.
+		 */
+		public boolean isDone() {
+			return applied + skipped + failed == total;
+		}
+
+		@Override
+		public String toString() {
+			StringJoiner joiner = new StringJoiner(", ", "{", "}");
+			joiner.add("total:" + total);
+			joiner.add("applied:" + applied);
+			joiner.add("skipped:" + skipped);
+			joiner.add("failed:" + failed);
+			joiner.add("ticks:" + ticks);
+			joiner.add("time:" + time + "ns");
+			return joiner.toString();
+		}
+
+		private void apply(long start) {
+			long begin = System.nanoTime();
+			int index = applied + skipped + failed;
+			do {
+				Object element = elements.get(index);
+
+				// Do not keep a reference on the element once processed.
+				elements.set(index++, null);
+				if (!filter.test(element)) {
+					skipped++;
+					continue;
+				}
+
+				try {
+					operation.accept(element);
+					applied++;
+				} catch (RuntimeException e) {
+					failed++;
+					if (error == null)
+						error = e;
+				}
+			} while (index < total && System.nanoTime() - start < budget);
+			time += System.nanoTime() - begin;
+		}
+
+		private void complete() {
+			ticks++;
+			if (error == null)
+				future.complete(this);
+			else
+				future.completeExceptionally(error);
+		}
+	}
+}
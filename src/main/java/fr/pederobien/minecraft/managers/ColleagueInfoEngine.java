@@ -0,0 +1,283 @@
+package fr.pederobien.minecraft.managers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+import org.bukkit.scoreboard.Team;
+import org.bukkit.util.NumberConversions;
+
+import fr.pederobien.minecraft.managers.TeamManager.ColleagueInfo;
+
+public class ColleagueInfoEngine {
+	private Map<UUID, State> states;
+	private Map<Team, Group> groups;
+	private Player[] players;
+	private State[] slots;
+	private World[] worlds;
+	private double[] x, z;
+	private int[] blockX, blockZ;
+	private float[] yaws;
+	private boolean[] moved;
+	private int count;
+	private long tick;
+	private double movementThreshold, rotationThreshold;
+
+	/**
+	 * Create an engine that computes, for each player registered in a team, the information about its colleagues.
+	 */
+	public ColleagueInfoEngine() {
+		states = new HashMap<UUID, State>();
+		groups = new HashMap<Team, Group>();
+		allocate(16);
+		movementThreshold = 0;
+		rotationThreshold = 0;
+	}
+
+	/**
+	 * Set the distance, in blocks, a player has to move before the information associated to this player are computed again.
+	 *
+	 * @param movementThreshold The minimal distance to move, 0 to compute again the information each time the player moves.
+	 */
+	public void setMovementThreshold(double movementThreshold) {
+		this.movementThreshold = movementThreshold;
+	}
+
+	/**
+	 * @return The distance, in blocks, a player has to move before the information associated to this player are computed again.
+	 */
+	public double getMovementThreshold() {
+		return movementThreshold;
+	}
+
+	/**
+	 * Set the angle, in degrees, a player has to turn before the information associated to this player are computed again.
+	 *
+	 * @param rotationThreshold The minimal angle to turn, 0 to compute again the information each time the player turns.
+	 */
+	public void setRotationThreshold(double rotationThreshold) {
+		this.rotationThreshold = rotationThreshold;
+	}
+
+	/**
+	 * @return The angle, in degrees, a player has to turn before the information associated to this player are computed again.
+	 */
+	public double getRotationThreshold() {
+		return rotationThreshold;
+	}
+
+	/**
+	 * Run the method {@link #update()} every <code>period</code> ticks.
+	 *
+	 * @param plugin The plugin that owns the task.
+	 * @param period The number of ticks between two updates.
+	 *
+	 * @return The task that updates this engine.
+	 */
+	public BukkitTask start(Plugin plugin, long period) {
+		return BukkitManager.getScheduler().runTaskTimer(plugin, () -> update(), 0, period);
+	}
+
+	/**
+	 * Take a snapshot of the position of each player currently logged into the server and update the information of each colleague
+	 * of each player. The information of a pair of players is only computed again if one of them moved or turned more than the
+	 * thresholds. This method must be called from the main thread.
+	 */
+	public void update() {
+		tick++;
+		snapshot();
+
+		for (Group group : groups.values())
+			group.size = 0;
+
+		for (int i = 0; i < count; i++) {
+			Team team = TeamManager.getTeam(players[i]).orElse(null);
+			if (team == null) {
+				slots[i].clear();
+				continue;
+			}
+
+			Group group = groups.get(team);
+			if (group == null)
+				groups.put(team, group = new Group());
+			group.add(i);
+		}
+
+		Iterator<Group> iterator = groups.values().iterator();
+		while (iterator.hasNext()) {
+			Group group = iterator.next();
+			if (group.size == 0)
+				iterator.remove();
+			else
+				compute(group);
+		}
+
+		// A state not stamped by this update belongs to a player absent from the snapshot, its colleague view is no longer read.
+		states.values().removeIf(state -> state.tick != tick);
+	}
+
+	/**
+	 * Get the information about each colleague of the given player computed during the last {@link #update()}. The returned list is a
+	 * read-only view reused from one update to another : its elements are modified by each update and must not be kept.
+	 *
+	 * @param player The player used to get information of its colleagues.
+	 *
+	 * @return A read-only view on the information of the colleagues of the player.
+	 */
+	public List<ColleagueInfo> getColleaguesInfo(Player player) {
+		State state = states.get(player.getUniqueId());
+		return state == null ? Collections.emptyList() : state.view;
+	}
+
+	private void snapshot() {
+		count = 0;
+		for (Player player : BukkitManager.getOnlinePlayers()) {
+			if (count == players.length)
+				allocate(players.length * 2);
+
+			State state = states.get(player.getUniqueId());
+			if (state == null)
+				states.put(player.getUniqueId(), state = new State());
+
+			Location location = player.getLocation();
+			players[count] = player;
+			slots[count] = state;
+			worlds[count] = location.getWorld();
+			x[count] = location.getX();
+			z[count] = location.getZ();
+			blockX[count] = location.getBlockX();
+			blockZ[count] = location.getBlockZ();
+			yaws[count] = location.getYaw();
+			moved[count] = state.move(worlds[count], x[count], z[count], yaws[count]);
+			state.tick = tick;
+			count++;
+		}
+
+		// Do not keep references on players that are no more logged into the server.
+		Arrays.fill(players, count, players.length, null);
+		Arrays.fill(slots, count, slots.length, null);
+		Arrays.fill(worlds, count, worlds.length, null);
+	}
+
+	private void compute(Group group) {
+		for (int i = 0; i < group.size; i++) {
+			int source = group.members[i];
+			State state = slots[source];
+			boolean rebuild = state.infos.size() != group.size - 1;
+
+			for (int j = 0, k = 0; !rebuild && j < group.size; j++)
+				if (j != i)
+					rebuild = state.infos.get(k++).getColleague() != players[group.members[j]];
+
+			if (rebuild)
+				state.infos.clear();
+
+			for (int j = 0, k = 0; j < group.size; j++) {
+				if (j == i)
+					continue;
+
+				int colleague = group.members[j];
+				if (rebuild)
+					state.infos.add(create(source, colleague));
+				else if (moved[source] || moved[colleague])
+					update(state.infos.get(k), source, colleague);
+				k++;
+			}
+		}
+	}
+
+	private ColleagueInfo create(int source, int colleague) {
+		boolean isInDifferentWorld = worlds[source] != worlds[colleague];
+		return new ColleagueInfo(players[source], players[colleague], getDistance(source, colleague, isInDifferentWorld), getYaw(source, colleague),
+				isInDifferentWorld);
+	}
+
+	private void update(ColleagueInfo info, int source, int colleague) {
+		boolean isInDifferentWorld = worlds[source] != worlds[colleague];
+		info.update(getDistance(source, colleague, isInDifferentWorld), getYaw(source, colleague), isInDifferentWorld);
+	}
+
+	private int getDistance(int source, int colleague, boolean isInDifferentWorld) {
+		// Same value as casting the NaN returned by WorldManager#getDistance2D when players are in different worlds.
+		if (isInDifferentWorld)
+			return 0;
+		return (int) Math.sqrt(NumberConversions.square(x[source] - x[colleague]) + NumberConversions.square(z[source] - z[colleague]));
+	}
+
+	private double getYaw(int source, int colleague) {
+		return WorldManager.getYaw(blockX[colleague] - blockX[source], blockZ[colleague] - blockZ[source], yaws[source]);
+	}
+
+	private void allocate(int capacity) {
+		players = players == null ? new Player[capacity] : Arrays.copyOf(players, capacity);
+		slots = slots == null ? new State[capacity] : Arrays.copyOf(slots, capacity);
+		worlds = worlds == null ? new World[capacity] : Arrays.copyOf(worlds, capacity);
+		x = x == null ? new double[capacity] : Arrays.copyOf(x, capacity);
+		z = z == null ? new double[capacity] : Arrays.copyOf(z, capacity);
+		blockX = blockX == null ? new int[capacity] : Arrays.copyOf(blockX, capacity);
+		blockZ = blockZ == null ? new int[capacity] : Arrays.copyOf(blockZ, capacity);
+		yaws = yaws == null ? new float[capacity] : Arrays.copyOf(yaws, capacity);
+		moved = moved == null ? new boolean[capacity] : Arrays.copyOf(moved, capacity);
+	}
+
+	private class State {
+		private List<ColleagueInfo> infos, view;
+		private World world;
+		private double x, z;
+		private float yaw;
+		private long tick;
+
+		private State() {
+			infos = new ArrayList<ColleagueInfo>();
+			view = Collections.unmodifiableList(infos);
+		}
+
+		/**
+		 * Update the reference position of the player if it moved or turned more than the thresholds.
+		 *
+		 * @return True if the reference position has been updated, false otherwise.
+		 */
+		private boolean move(World world, double x, double z, float yaw) {
+			double squared = NumberConversions.square(this.x - x) + NumberConversions.square(this.z - z);
+			boolean moved = this.world != world || squared > movementThreshold * movementThreshold;
+			// The yaw is not bounded, turning from 179 to -179 degrees is a rotation of 2 degrees.
+			if (!moved && Math.abs(Location.normalizeYaw(this.yaw - yaw)) <= rotationThreshold)
+				return false;
+
+			this.world = world;
+			this.x = x;
+			this.z = z;
+			this.yaw = yaw;
+			return true;
+		}
+
+		private void clear() {
+			infos.clear();
+		}
+	}
+
+	private class Group {
+		private int[] members;
+		private int size;
+
+		private Group() {
+			members = new int[8];
+		}
+
+		private void add(int member) {
+			if (size == members.length)
+				members = Arrays.copyOf(members, size * 2);
+			members[size++] = member;
+		}
+	}
+}
@@ -0,0 +1,383 @@
+package fr.pederobien.minecraft.managers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.player.PlayerRespawnEvent;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.potion.PotionEffect;
+import org.bukkit.potion.PotionEffectType;
+import org.bukkit.scheduler.BukkitTask;
+import org.bukkit.util.NumberConversions;
+
+public class EffectAuraEngine extends EventListener {
+	private static final int CELL_BITS = 4;
+	private static final int MAX_CELLS = 256;
+
+	private List<Aura> auras;
+	private Map<World, Map<Long, List<Aura>>> grid;
+	private Map<World, List<Aura>> large;
+	private Map<UUID, State> states;
+	private boolean isDirty;
+	private long tick;
+
+	/**
+	 * Create an engine that gives effects to players standing in zones and removes them once players leave those zones. Zones are
+	 * stored in a grid of cells of 16 blocks, so that only zones overlapping the cell of a player are tested. Zones overlapping more
+	 * than {@value #MAX_CELLS} cells are not stored in the grid but tested for each player of their world. A player is only evaluated
+	 * when its block position changed. It should be registered on the server so that effects are removed from players
+	 * leaving the server and given again to players that respawn.
+	 */
+	public EffectAuraEngine() {
+		auras = new ArrayList<Aura>();
+		grid = new HashMap<World, Map<Long, List<Aura>>>();
+		large = new HashMap<World, List<Aura>>();
+		states = new HashMap<UUID, State>();
+		setActivated(true);
+	}
+
+	/**
+	 * Run the method {@link #update()} every <code>period</code> ticks.
+	 *
+	 * @param plugin The plugin that owns the task.
+	 * @param period The number of ticks between two updates.
+	 *
+	 * @return The task that updates this engine.
+	 */
+	public BukkitTask start(Plugin plugin, long period) {
+		return BukkitManager.getScheduler().runTaskTimer(plugin, () -> update(), 0, period);
+	}
+
+	/**
+	 * Add the given aura to this engine. Each player is evaluated again during the next update.
+	 *
+	 * @param aura The aura to add.
+	 */
+	public void addAura(Aura aura) {
+		if (auras.contains(aura))
+			return;
+
+		auras.add(aura);
+		if (isLarge(aura))
+			large.computeIfAbsent(aura.world, world -> new ArrayList<Aura>()).add(aura);
+		else {
+			Map<Long, List<Aura>> cells = grid.computeIfAbsent(aura.world, world -> new HashMap<Long, List<Aura>>());
+			for (int x = aura.minBlockX >> CELL_BITS; x <= aura.maxBlockX >> CELL_BITS; x++)
+				for (int z = aura.minBlockZ >> CELL_BITS; z <= aura.maxBlockZ >> CELL_BITS; z++)
+					cells.computeIfAbsent(key(x, z), key -> new ArrayList<Aura>()).add(aura);
+		}
+		isDirty = true;
+	}
+
+	/**
+	 * Remove the given aura from this engine. The effects of the aura are removed from players standing in it.
+	 *
+	 * @param aura The aura to remove.
+	 */
+	public void removeAura(Aura aura) {
+		if (!auras.remove(aura))
+			return;
+
+		if (isLarge(aura)) {
+			List<Aura> list = large.get(aura.world);
+			list.remove(aura);
+			if (list.isEmpty())
+				large.remove(aura.world);
+		} else {
+			Map<Long, List<Aura>> cells = grid.get(aura.world);
+			for (int x = aura.minBlockX >> CELL_BITS; x <= aura.maxBlockX >> CELL_BITS; x++)
+				for (int z = aura.minBlockZ >> CELL_BITS; z <= aura.maxBlockZ >> CELL_BITS; z++) {
+					List<Aura> cell = cells.get(key(x, z));
+					cell.remove(aura);
+					if (cell.isEmpty())
+						cells.remove(key(x, z));
+				}
+
+			if (cells.isEmpty())
+				grid.remove(aura.world);
+		}
+
+		for (State state : states.values())
+			if (state.inside.remove(aura) && state.player.isOnline())
+				exit(state, aura);
+	}
+
+	/**
+	 * @return An unmodifiable list that contains each aura of this engine.
+	 */
+	public List<Aura> getAuras() {
+		return Collections.unmodifiableList(auras);
+	}
+
+	/**
+	 * Evaluate each player whose block position changed since the last update : effects of auras the player entered are given and
+	 * effects of auras the player left are removed. This method must be called from the main thread.
+	 */
+	public void update() {
+		tick++;
+		boolean force = isDirty;
+		isDirty = false;
+
+		for (Player player : PlayerManager.getPlayersSnapshot()) {
+			State state = states.get(player.getUniqueId());
+			if (state == null)
+				states.put(player.getUniqueId(), state = new State(player));
+
+			state.tick = tick;
+			Location location = player.getLocation();
+			if (state.move(location) || force)
+				evaluate(state, location);
+		}
+
+		// Without the quit handler, for instance when the engine is not registered, a player who left is only noticed here.
+		states.values().removeIf(state -> {
+			if (state.tick == tick)
+				return false;
+
+			exitAll(state);
+			return true;
+		});
+	}
+
+	/**
+	 * Get the auras in which the given player was standing during the last update.
+	 *
+	 * @param player The player.
+	 *
+	 * @return An unmodifiable view on the auras of the player.
+	 */
+	public List<Aura> getAuras(Player player) {
+		State state = states.get(player.getUniqueId());
+		return state == null ? Collections.emptyList() : state.view;
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR)
+	public void onPlayerQuit(PlayerQuitEvent event) {
+		if (!isActivated())
+			return;
+
+		// The data of the player are saved after the event, effects of auras should not remain once the player joins again.
+		State state = states.remove(event.getPlayer().getUniqueId());
+		if (state != null)
+			exitAll(state);
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR)
+	public void onPlayerRespawn(PlayerRespawnEvent event) {
+		State state = states.get(event.getPlayer().getUniqueId());
+		if (!isActivated() || state == null)
+			return;
+
+		// Effects are removed when the player dies, they are given again during the next update.
+		state.inside.clear();
+		state.isDirty = true;
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR)
+	public void onPlayerChangedWorld(PlayerChangedWorldEvent event) {
+		State state = states.get(event.getPlayer().getUniqueId());
+		if (isActivated() && state != null)
+			state.isDirty = true;
+	}
+
+	private void evaluate(State state, Location location) {
+		Map<Long, List<Aura>> cells = grid.get(location.getWorld());
+		List<Aura> candidates = cells == null ? null : cells.get(key(location.getBlockX() >> CELL_BITS, location.getBlockZ() >> CELL_BITS));
+
+		for (int i = state.inside.size() - 1; i >= 0; i--) {
+			Aura aura = state.inside.get(i);
+			if (aura.contains(location))
+				continue;
+
+			state.inside.remove(i);
+			exit(state, aura);
+		}
+
+		enter(state, location, candidates);
+		enter(state, location, large.get(location.getWorld()));
+	}
+
+	private void enter(State state, Location location, List<Aura> candidates) {
+		if (candidates == null)
+			return;
+
+		for (Aura aura : candidates) {
+			if (state.inside.contains(aura) || !aura.contains(location))
+				continue;
+
+			state.inside.add(aura);
+			PotionManager.giveEffects(state.player, aura.effects);
+		}
+	}
+
+	private void exitAll(State state) {
+		while (!state.inside.isEmpty())
+			exit(state, state.inside.remove(state.inside.size() - 1));
+	}
+
+	private void exit(State state, Aura aura) {
+		for (PotionEffect effect : aura.effects) {
+			PotionEffect remaining = null;
+			for (Aura other : state.inside)
+				for (PotionEffect candidate : other.effects)
+					if (candidate.getType().equals(effect.getType()))
+						remaining = candidate;
+
+			// Another aura in which the player is still standing gives an effect of the same type.
+			if (remaining == null)
+				PotionManager.removeEffect(state.player, effect.getType());
+			else
+				PotionManager.updateEffect(state.player, remaining);
+		}
+	}
+
+	private static boolean isLarge(Aura aura) {
+		long width = (aura.maxBlockX >> CELL_BITS) - (aura.minBlockX >> CELL_BITS) + 1;
+		long depth = (aura.maxBlockZ >> CELL_BITS) - (aura.minBlockZ >> CELL_BITS) + 1;
+		return width * depth > MAX_CELLS;
+	}
+
+	private static long key(int x, int z) {
+		return ((long) x << 32) | (z & 0xFFFFFFFFL);
+	}
+
+	private class State {
+		private Player player;
+		private List<Aura> inside, view;
+		private World world;
+		private int x, y, z;
+		private long tick;
+		private boolean isDirty;
+
+		private State(Player player) {
+			this.player = player;
+			inside = new ArrayList<Aura>();
+			view = Collections.unmodifiableList(inside);
+		}
+
+		/**
+		 * Update the block position of the player.
+		 *
+		 * @return True if the block position of the player changed or if the player has to be evaluated again, false otherwise.
+		 */
+		private boolean move(Location location) {
+			boolean isDirty = this.isDirty;
+			this.isDirty = false;
+			boolean isSameBlock = x == location.getBlockX() && y == location.getBlockY() && z == location.getBlockZ();
+			if (!isDirty && world == location.getWorld() && isSameBlock)
+				return false;
+
+			world = location.getWorld();
+			x = location.getBlockX();
+			y = location.getBlockY();
+			z = location.getBlockZ();
+			return true;
+		}
+	}
+
+	public static class Aura {
+		private World world;
+		private Location center;
+		private double squaredRadius;
+		private int minBlockX, minBlockZ, maxBlockX, maxBlockZ;
+		private PotionEffect[] effects;
+
+		private Aura(World world, double minX, double minZ, double maxX, double maxZ, PotionEffect[] effects) {
+			this.world = world;
+			minBlockX = NumberConversions.floor(minX);
+			minBlockZ = NumberConversions.floor(minZ);
+			maxBlockX = NumberConversions.floor(maxX);
+			maxBlockZ = NumberConversions.floor(maxZ);
+			this.effects = effects.clone();
+		}
+
+		/**
+		 * Create an aura whose zone is made of the blocks between the blocks of both locations, on X and Z. Zones are snapped to whole
+		 * blocks since players are only evaluated when their block position changes.
+		 *
+		 * @param from    A corner of the zone.
+		 * @param to      The opposite corner of the zone.
+		 * @param effects The effects given to players standing in the zone, they should last longer than the time spent in the zone.
+		 *
+		 * @return The created aura.
+		 */
+		public static Aura box(Location from, Location to, PotionEffect... effects) {
+			if (from.getWorld() == null || from.getWorld() != to.getWorld())
+				throw new IllegalArgumentException("Both locations must be in the same world");
+
+			return new Aura(from.getWorld(), Math.min(from.getX(), to.getX()), Math.min(from.getZ(), to.getZ()), Math.max(from.getX(), to.getX()),
+					Math.max(from.getZ(), to.getZ()), effects);
+		}
+
+		/**
+		 * Create an aura whose zone is made of the blocks whose center is in the disk around the given center, on X and Z.
+		 *
+		 * @param center  The center of the zone.
+		 * @param radius  The radius of the zone.
+		 * @param effects The effects given to players standing in the zone, they should last longer than the time spent in the zone.
+		 *
+		 * @return The created aura.
+		 */
+		public static Aura radius(Location center, double radius, PotionEffect... effects) {
+			if (center.getWorld() == null)
+				throw new IllegalArgumentException("The world of the center cannot be null");
+
+			Aura aura = new Aura(center.getWorld(), center.getX() - radius, center.getZ() - radius, center.getX() + radius, center.getZ() + radius,
+					effects);
+			aura.center = center.clone();
+			aura.squaredRadius = radius * radius;
+			return aura;
+		}
+
+		/**
+		 * @return The world of the zone.
+		 */
+		public World getWorld() {
+			return world;
+		}
+
+		/**
+		 * @return A copy of the effects given to players standing in the zone.
+		 */
+		public PotionEffect[] getEffects() {
+			return effects.clone();
+		}
+
+		/**
+		 * @param type The type of an effect.
+		 * @return True if this aura gives an effect of the given type, false otherwise.
+		 */
+		public boolean hasEffect(PotionEffectType type) {
+			for (PotionEffect effect : effects)
+				if (effect.getType().equals(type))
+					return true;
+			return false;
+		}
+
+		/**
+		 * @param location The location to check.
+		 * @return True if the block of the location is in the zone of this aura, false otherwise.
+		 */
+		public boolean contains(Location location) {
+			int x = location.getBlockX(), z = location.getBlockZ();
+			if (location.getWorld() != world || x < minBlockX || maxBlockX < x || z < minBlockZ || maxBlockZ < z)
+				return false;
+			if (center == null)
+				return true;
+
+			// The distance is measured from the center of the block.
+			return NumberConversions.square(x + 0.5 - center.getX()) + NumberConversions.square(z + 0.5 - center.getZ()) <= squaredRadius;
+		}
+	}
+}
@@ -0,0 +1,267 @@
+package fr.pederobien.minecraft.managers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.potion.PotionEffect;
+import org.bukkit.scheduler.BukkitTask;
+
+public class EffectTimeline {
+	private static final int BITS = 6;
+	private static final int SLOTS = 1 << BITS;
+	private static final int MASK = SLOTS - 1;
+	private static final int LEVELS = 4;
+	private static final long HORIZON = 1L << (BITS * LEVELS);
+
+	private Bucket[][] wheels;
+	private Bucket firing;
+	private long now;
+	private int size;
+	private BukkitTask task;
+
+	/**
+	 * Create a timeline that runs actions after a delay expressed in ticks. Pending actions are stored in a hierarchical timing wheel
+	 * of {@value #LEVELS} levels so that scheduling, cancelling and rescheduling an action are constant time operations, whatever the
+	 * number of pending actions. Every action due on the same tick runs during the same task execution.
+	 */
+	public EffectTimeline() {
+		wheels = new Bucket[LEVELS][SLOTS];
+		for (int level = 0; level < LEVELS; level++)
+			for (int slot = 0; slot < SLOTS; slot++)
+				wheels[level][slot] = new Bucket();
+		firing = new Bucket();
+	}
+
+	/**
+	 * Run the method {@link #tick()} every tick.
+	 *
+	 * @param plugin The plugin that owns the task.
+	 *
+	 * @return The task that drives this timeline.
+	 */
+	public BukkitTask start(Plugin plugin) {
+		stop();
+		return task = BukkitManager.getScheduler().runTaskTimer(plugin, () -> tick(), 1, 1);
+	}
+
+	/**
+	 * Stop the task that drives this timeline. Pending actions are kept and run once the timeline is started again.
+	 */
+	public void stop() {
+		if (task == null)
+			return;
+
+		task.cancel();
+		task = null;
+	}
+
+	/**
+	 * @return The number of pending actions.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return The number of ticks elapsed since the creation of this timeline.
+	 */
+	public long getTick() {
+		return now;
+	}
+
+	/**
+	 * Schedule the given action. This method must be called from the main thread.
+	 *
+	 * @param delay  The number of ticks before running the action, a delay lower than 1 runs the action during the next tick.
+	 * @param action The action to run.
+	 *
+	 * @return The timer associated to the action, used to cancel or to reschedule it.
+	 */
+	public Timer schedule(long delay, Runnable action) {
+		Timer timer = new Timer(action);
+		timer.reschedule(delay);
+		return timer;
+	}
+
+	/**
+	 * Schedule the given effect to be given to players after the delay.
+	 *
+	 * @param delay   The number of ticks before giving the effect.
+	 * @param players A supplier of the players that receive the effect, called once the delay has elapsed.
+	 * @param effect  The effect to give.
+	 *
+	 * @return The timer associated to the application of the effect.
+	 */
+	public Timer giveEffect(long delay, Supplier<Stream<Player>> players, PotionEffect effect) {
+		return schedule(delay, () -> PotionManager.giveEffect(players.get(), effect));
+	}
+
+	/**
+	 * Schedule the given effect to be given to players after the delay and to be removed from these players after the duration. For
+	 * example, give Speed II to the team red in 30 seconds for 45 seconds. The effect is only removed from players that still have an
+	 * effect of the same type and the same amplifier.
+	 *
+	 * @param delay    The number of ticks before giving the effect.
+	 * @param duration The number of ticks before removing the effect once given.
+	 * @param players  A supplier of the players that receive the effect, called once the delay has elapsed.
+	 * @param effect   The effect to give.
+	 *
+	 * @return The timer associated to the effect. Cancelling it before the application cancels the application and the removal,
+	 *         cancelling it after the application cancels the removal.
+	 */
+	public Timer giveEffect(long delay, long duration, Supplier<Stream<Player>> players, PotionEffect effect) {
+		Timer timer = new Timer(null);
+		timer.action = () -> {
+			List<Player> receivers = new ArrayList<Player>();
+			players.get().forEach(player -> {
+				PotionManager.giveEffect(player, effect);
+				receivers.add(player);
+			});
+
+			timer.action = () -> {
+				for (Player player : receivers) {
+					if (!player.isOnline())
+						continue;
+
+					PotionEffect active = player.getPotionEffect(effect.getType());
+					if (active != null && active.getAmplifier() == effect.getAmplifier())
+						PotionManager.removeEffect(player, effect.getType());
+				}
+			};
+			timer.reschedule(duration);
+		};
+		timer.reschedule(delay);
+		return timer;
+	}
+
+	/**
+	 * Advance this timeline of one tick and run each action due on this tick. This method must be called from the main thread.
+	 */
+	public void tick() {
+		now++;
+
+		// When a level completes a lap, the actions of the current slot of the upper level are redistributed.
+		for (int level = 1; level < LEVELS && (now & ((1L << (BITS * level)) - 1)) == 0; level++)
+			cascade(wheels[level][(int) ((now >>> (BITS * level)) & MASK)]);
+
+		Bucket due = wheels[0][(int) (now & MASK)];
+		while (due.head != null) {
+			Timer timer = due.head;
+			due.remove(timer);
+			firing.add(timer);
+		}
+
+		// An action can cancel or reschedule another action due on the same tick.
+		while (firing.head != null) {
+			Timer timer = firing.head;
+			firing.remove(timer);
+			size--;
+			timer.action.run();
+		}
+	}
+
+	private void cascade(Bucket bucket) {
+		while (bucket.head != null) {
+			Timer timer = bucket.head;
+			bucket.remove(timer);
+			place(timer);
+		}
+	}
+
+	private void place(Timer timer) {
+		long delta = timer.deadline - now;
+		if (delta <= 0) {
+			firing.add(timer);
+			return;
+		}
+
+		// Actions beyond the horizon are stored in the last slot reachable and redistributed once reached.
+		long deadline = delta < HORIZON ? timer.deadline : now + HORIZON - 1;
+		delta = deadline - now;
+		int level = 0;
+		while (level < LEVELS - 1 && delta >= 1L << (BITS * (level + 1)))
+			level++;
+		wheels[level][(int) ((deadline >>> (BITS * level)) & MASK)].add(timer);
+	}
+
+	public class Timer {
+		private Runnable action;
+		private long deadline;
+		private Bucket bucket;
+		private Timer previous, next;
+
+		private Timer(Runnable action) {
+			this.action = action;
+		}
+
+		/**
+		 * Cancel this timer if it is pending.
+		 *
+		 * @return True if this timer was pending, false otherwise.
+		 */
+		public boolean cancel() {
+			if (bucket == null)
+				return false;
+
+			bucket.remove(this);
+			size--;
+			return true;
+		}
+
+		/**
+		 * Schedule again the action of this timer, whether it is pending or not.
+		 *
+		 * @param delay The number of ticks before running the action, a delay lower than 1 runs the action during the next tick.
+		 */
+		public void reschedule(long delay) {
+			cancel();
+			deadline = now + Math.max(1, delay);
+			place(this);
+			size++;
+		}
+
+		/**
+		 * @return True if the action of this timer has not been run yet nor cancelled.
+		 */
+		public boolean isPending() {
+			return bucket != null;
+		}
+
+		/**
+		 * @return The number of ticks before running the action, 0 if this timer is not pending.
+		 */
+		public long getRemainingTicks() {
+			return bucket == null ? 0 : Math.max(0, deadline - now);
+		}
+	}
+
+	private class Bucket {
+		private Timer head;
+
+		private void add(Timer timer) {
+			timer.bucket = this;
+			timer.previous = null;
+			timer.next = head;
+			if (head != null)
+				head.previous = timer;
+			head = timer;
+		}
+
+		private void remove(Timer timer) {
+			if (timer.previous != null)
+				timer.previous.next = timer.next;
+			else
+				head = timer.next;
+			if (timer.next != null)
+				timer.next.previous = timer.previous;
+
+			timer.bucket = null;
+			timer.previous = null;
+			timer.next = null;
+		}
+	}
+}
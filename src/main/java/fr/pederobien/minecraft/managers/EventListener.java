@@ -21,6 +21,7 @@ public class EventListener implements Listener {
 			return;
 		isRegistered = true;
 		plugin.getServer().getPluginManager().registerEvents(this, plugin);
+		onRegister();
 	}
 
 	/**
@@ -45,4 +46,10 @@ public class EventListener implements Listener {
 	public boolean isActivated() {
 		return isActivated;
 	}
+
+	/**
+	 * Method called once this listener has been registered on the server, from the thread that registered it.
+	 */
+	protected void onRegister() {
+	}
 }
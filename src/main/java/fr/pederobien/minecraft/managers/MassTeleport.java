@@ -0,0 +1,233 @@
+package fr.pederobien.minecraft.managers;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+
+public class MassTeleport {
+	private static final double DEFAULT_BUDGET = 5;
+
+	private BulkExecutor executor;
+	private List<Player> players;
+	private List<Location> locations;
+	private List<Chunk> chunks;
+	private int loaded, teleported, skipped;
+	private long ticks, time;
+	private BulkExecutor.Batch batch;
+	private CompletableFuture<MassTeleport> future;
+
+	/**
+	 * Create a mass teleport whose destination chunks are loaded before teleporting players. Chunks are loaded by the given executor,
+	 * within its budget per tick, and each destination chunk is held by a ticket of the plugin of the executor from its loading until
+	 * all players have been teleported. A chunk already held by a ticket of the plugin keeps it once the players have been teleported.
+	 *
+	 * @param executor The executor that loads the destination chunks.
+	 */
+	public MassTeleport(BulkExecutor executor) {
+		this.executor = executor;
+		players = new ArrayList<Player>();
+		locations = new ArrayList<Location>();
+		chunks = new ArrayList<Chunk>();
+	}
+
+	/**
+	 * Create a mass teleport whose destination chunks are loaded by a new executor that can spend {@value #DEFAULT_BUDGET}
+	 * milliseconds per tick.
+	 *
+	 * @param plugin The plugin that owns the chunk tickets and the task loading the chunks.
+	 *
+	 * @see #MassTeleport(BulkExecutor)
+	 */
+	public MassTeleport(Plugin plugin) {
+		this(new BulkExecutor(plugin, DEFAULT_BUDGET));
+	}
+
+	/**
+	 * Register the teleportation of the given player to the given location.
+	 *
+	 * @param player   The player to teleport.
+	 * @param location The location to teleport the player to.
+	 *
+	 * @return This mass teleport.
+	 */
+	public MassTeleport add(Player player, Location location) {
+		checkNotStarted();
+		if (location.getWorld() == null)
+			throw new IllegalArgumentException("The world of the location cannot be null");
+
+		players.add(player);
+		locations.add(location.clone());
+		return this;
+	}
+
+	/**
+	 * Register the teleportation of each player of the stream to the given location.
+	 *
+	 * @param players  A stream that contains the players to teleport.
+	 * @param location The location to teleport the players to.
+	 *
+	 * @return This mass teleport.
+	 */
+	public MassTeleport add(Stream<Player> players, Location location) {
+		players.forEach(player -> add(player, location));
+		return this;
+	}
+
+	/**
+	 * Register the teleportation of each player to its associated location.
+	 *
+	 * @param destinations A map that contains the location of each player to teleport.
+	 *
+	 * @return This mass teleport.
+	 */
+	public MassTeleport add(Map<Player, Location> destinations) {
+		destinations.forEach((player, location) -> add(player, location));
+		return this;
+	}
+
+	/**
+	 * Start loading the destination chunks. Once each chunk is loaded, players still logged into the server are teleported and the
+	 * chunk tickets are released the tick after. A mass teleport can only be started once. This method must be called from the main
+	 * thread.
+	 *
+	 * @return A future completed once the chunk tickets have been released. If a chunk could not be loaded or if the executor has
+	 *         been cancelled, no player is teleported and the future is completed exceptionally.
+	 */
+	public CompletableFuture<MassTeleport> start() {
+		checkNotStarted();
+		future = new CompletableFuture<MassTeleport>();
+		collect();
+		batch = executor.submit(chunks, chunk -> true, chunk -> chunk.load());
+		batch.getFuture().whenComplete((result, error) -> {
+			if (error == null)
+				teleport();
+
+			// Teleported players are sent the chunks during the current tick, the tickets are released the tick after.
+			BukkitManager.getScheduler().runTask(executor.getPlugin(), () -> release(error));
+		});
+		return future;
+	}
+
+	/**
+	 * @return The number of distinct destination chunks.
+	 */
+	public int getChunks() {
+		return chunks.size();
+	}
+
+	/**
+	 * @return The number of destination chunks loaded and held by a ticket.
+	 */
+	public int getLoaded() {
+		return loaded;
+	}
+
+	/**
+	 * @return The number of teleported players.
+	 */
+	public int getTeleported() {
+		return teleported;
+	}
+
+	/**
+	 * @return The number of players not teleported because they left the server or because the teleportation failed.
+	 */
+	public int getSkipped() {
+		return skipped;
+	}
+
+	/**
+	 * @return The number of ticks spent from the start until the release of the chunk tickets.
+	 */
+	public long getTicks() {
+		return ticks;
+	}
+
+	/**
+	 * @return The time, in nanoseconds, spent loading chunks and teleporting players.
+	 */
+	public long getTime() {
+		return time;
+	}
+
+	@Override
+	public String toString() {
+		StringJoiner joiner = new StringJoiner(", ", "{", "}");
+		joiner.add("players:" + players.size());
+		joiner.add("chunks:" + chunks.size());
+		joiner.add("teleported:" + teleported);
+		joiner.add("skipped:" + skipped);
+		joiner.add("ticks:" + ticks);
+		joiner.add("time:" + time + "ns");
+		return joiner.toString();
+	}
+
+	private void collect() {
+		Map<World, Set<Long>> keys = new HashMap<World, Set<Long>>();
+		for (Location location : locations) {
+			int x = location.getBlockX() >> 4, z = location.getBlockZ() >> 4;
+			if (keys.computeIfAbsent(location.getWorld(), world -> new HashSet<Long>()).add(((long) x << 32) | (z & 0xFFFFFFFFL)))
+				chunks.add(new Chunk(location.getWorld(), x, z));
+		}
+	}
+
+	private void teleport() {
+		long start = System.nanoTime();
+		for (int i = 0; i < players.size(); i++) {
+			Player player = players.get(i);
+			if (player.isOnline() && player.teleport(locations.get(i)))
+				teleported++;
+			else
+				skipped++;
+		}
+		time += System.nanoTime() - start;
+	}
+
+	private void release(Throwable error) {
+		// A ticket the plugin already held before the teleportation belongs to another feature of the plugin.
+		for (Chunk chunk : chunks)
+			if (chunk.ticket)
+				chunk.world.removePluginChunkTicket(chunk.x, chunk.z, executor.getPlugin());
+
+		ticks = batch.getTicks() + 1;
+		time += batch.getTime();
+		if (error == null)
+			future.complete(this);
+		else
+			future.completeExceptionally(error);
+	}
+
+	private void checkNotStarted() {
+		if (future != null)
+			throw new IllegalStateException("The mass teleport has already been started");
+	}
+
+	private class Chunk {
+		private World world;
+		private int x, z;
+		private boolean ticket;
+
+		private Chunk(World world, int x, int z) {
+			this.world = world;
+			this.x = x;
+			this.z = z;
+		}
+
+		private void load() {
+			// Adding a ticket synchronously loads the chunk if it is not loaded yet.
+			ticket = world.addPluginChunkTicket(x, z, executor.getPlugin());
+			loaded++;
+		}
+	}
+}
@@ -0,0 +1,450 @@
+package fr.pederobien.minecraft.managers;
+
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.function.Function;
+
+import org.bukkit.entity.Player;
+
+public class PlayerDataStore<T> extends AbstractPlayerDataStore<T> {
+	private Object[] values;
+
+	/**
+	 * Create a store that associates a value to players. It should be registered on the server in order to remove the value of a
+	 * player when it leaves the server.
+	 */
+	public PlayerDataStore() {
+		values = new Object[capacity()];
+	}
+
+	/**
+	 * Get the value associated to the player associated to the given identifier.
+	 *
+	 * @param uuid The unique identifier of a player.
+	 * @return The value associated to the player, null if no value is associated to the player.
+	 */
+	@SuppressWarnings("unchecked")
+	public T get(UUID uuid) {
+		int slot = find(uuid);
+		return slot < 0 ? null : (T) values[slot];
+	}
+
+	/**
+	 * Get the value associated to the given player.
+	 *
+	 * @param player A player.
+	 * @return The value associated to the player, null if no value is associated to the player.
+	 */
+	public T get(Player player) {
+		return get(player.getUniqueId());
+	}
+
+	/**
+	 * Get the value associated to the given player.
+	 *
+	 * @param player       A player.
+	 * @param defaultValue The value to return if no value is associated to the player.
+	 * @return The value associated to the player, the default value if no value is associated to the player.
+	 */
+	public T getOrDefault(Player player, T defaultValue) {
+		T value = get(player);
+		return value == null ? defaultValue : value;
+	}
+
+	/**
+	 * Associate the given value to the player associated to the given identifier.
+	 *
+	 * @param uuid  The unique identifier of a player.
+	 * @param value The value of the player, cannot be null.
+	 * @return The previous value of the player, null if no value was associated to the player.
+	 */
+	@SuppressWarnings("unchecked")
+	public T put(UUID uuid, T value) {
+		if (value == null)
+			throw new NullPointerException("The value cannot be null");
+
+		int slot = insert(uuid);
+		T previous = (T) values[slot];
+		values[slot] = value;
+		return previous;
+	}
+
+	/**
+	 * Associate the given value to the given player.
+	 *
+	 * @param player A player.
+	 * @param value  The value of the player, cannot be null.
+	 * @return The previous value of the player, null if no value was associated to the player.
+	 */
+	public T put(Player player, T value) {
+		return put(player.getUniqueId(), value);
+	}
+
+	/**
+	 * Get the value associated to the given player. If no value is associated to the player, a value is created and associated to it.
+	 *
+	 * @param player   A player.
+	 * @param function The function used to create the value of the player, it cannot return null.
+	 * @return The value associated to the player.
+	 */
+	@SuppressWarnings("unchecked")
+	public T computeIfAbsent(Player player, Function<Player, T> function) {
+		int slot = find(player.getUniqueId());
+		if (slot >= 0)
+			return (T) values[slot];
+
+		T value = function.apply(player);
+		put(player, value);
+		return value;
+	}
+
+	@Override
+	protected void rehash(int[] slots, int capacity) {
+		Object[] values = new Object[capacity];
+		for (int i = 0; i < slots.length; i++)
+			if (slots[i] >= 0)
+				values[slots[i]] = this.values[i];
+		this.values = values;
+	}
+
+	@Override
+	protected void move(int from, int to) {
+		values[to] = values[from];
+	}
+
+	@Override
+	protected void clear(int slot) {
+		values[slot] = null;
+	}
+
+	@Override
+	protected void clearValues() {
+		Arrays.fill(values, null);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	protected T box(int slot) {
+		return (T) values[slot];
+	}
+
+	public static class OfInt extends AbstractPlayerDataStore<Integer> {
+		private int[] values;
+
+		/**
+		 * Create a store that associates an integer to players, 0 being the value of players not in this store.
+		 */
+		public OfInt() {
+			values = new int[capacity()];
+		}
+
+		/**
+		 * @param uuid The unique identifier of a player.
+		 * @return The value associated to the player, 0 if no value is associated to the player.
+		 */
+		public int get(UUID uuid) {
+			int slot = find(uuid);
+			return slot < 0 ? 0 : values[slot];
+		}
+
+		/**
+		 * @param player A player.
+		 * @return The value associated to the player, 0 if no value is associated to the player.
+		 */
+		public int get(Player player) {
+			return get(player.getUniqueId());
+		}
+
+		/**
+		 * Associate the given value to the player associated to the given identifier.
+		 *
+		 * @param uuid  The unique identifier of a player.
+		 * @param value The value of the player.
+		 */
+		public void put(UUID uuid, int value) {
+			values[insert(uuid)] = value;
+		}
+
+		/**
+		 * Associate the given value to the given player.
+		 *
+		 * @param player A player.
+		 * @param value  The value of the player.
+		 */
+		public void put(Player player, int value) {
+			put(player.getUniqueId(), value);
+		}
+
+		/**
+		 * Add the given delta to the value associated to the player associated to the given identifier.
+		 *
+		 * @param uuid  The unique identifier of a player.
+		 * @param delta The value to add.
+		 * @return The new value of the player.
+		 */
+		public int add(UUID uuid, int delta) {
+			int slot = insert(uuid);
+			return values[slot] += delta;
+		}
+
+		/**
+		 * Add the given delta to the value associated to the given player.
+		 *
+		 * @param player A player.
+		 * @param delta  The value to add.
+		 * @return The new value of the player.
+		 */
+		public int add(Player player, int delta) {
+			return add(player.getUniqueId(), delta);
+		}
+
+		/**
+		 * Add one to the value associated to the given player.
+		 *
+		 * @param player A player.
+		 * @return The new value of the player.
+		 */
+		public int increment(Player player) {
+			return add(player, 1);
+		}
+
+		@Override
+		protected void rehash(int[] slots, int capacity) {
+			int[] values = new int[capacity];
+			for (int i = 0; i < slots.length; i++)
+				if (slots[i] >= 0)
+					values[slots[i]] = this.values[i];
+			this.values = values;
+		}
+
+		@Override
+		protected void move(int from, int to) {
+			values[to] = values[from];
+		}
+
+		@Override
+		protected void clear(int slot) {
+			values[slot] = 0;
+		}
+
+		@Override
+		protected void clearValues() {
+			Arrays.fill(values, 0);
+		}
+
+		@Override
+		protected Integer box(int slot) {
+			return values[slot];
+		}
+	}
+
+	public static class OfLong extends AbstractPlayerDataStore<Long> {
+		private long[] values;
+
+		/**
+		 * Create a store that associates a long to players, 0 being the value of players not in this store.
+		 */
+		public OfLong() {
+			values = new long[capacity()];
+		}
+
+		/**
+		 * @param uuid The unique identifier of a player.
+		 * @return The value associated to the player, 0 if no value is associated to the player.
+		 */
+		public long get(UUID uuid) {
+			int slot = find(uuid);
+			return slot < 0 ? 0 : values[slot];
+		}
+
+		/**
+		 * @param player A player.
+		 * @return The value associated to the player, 0 if no value is associated to the player.
+		 */
+		public long get(Player player) {
+			return get(player.getUniqueId());
+		}
+
+		/**
+		 * Associate the given value to the player associated to the given identifier.
+		 *
+		 * @param uuid  The unique identifier of a player.
+		 * @param value The value of the player.
+		 */
+		public void put(UUID uuid, long value) {
+			values[insert(uuid)] = value;
+		}
+
+		/**
+		 * Associate the given value to the given player.
+		 *
+		 * @param player A player.
+		 * @param value  The value of the player.
+		 */
+		public void put(Player player, long value) {
+			put(player.getUniqueId(), value);
+		}
+
+		/**
+		 * Add the given delta to the value associated to the player associated to the given identifier.
+		 *
+		 * @param uuid  The unique identifier of a player.
+		 * @param delta The value to add.
+		 * @return The new value of the player.
+		 */
+		public long add(UUID uuid, long delta) {
+			int slot = insert(uuid);
+			return values[slot] += delta;
+		}
+
+		/**
+		 * Add the given delta to the value associated to the given player.
+		 *
+		 * @param player A player.
+		 * @param delta  The value to add.
+		 * @return The new value of the player.
+		 */
+		public long add(Player player, long delta) {
+			return add(player.getUniqueId(), delta);
+		}
+
+		/**
+		 * Add one to the value associated to the given player.
+		 *
+		 * @param player A player.
+		 * @return The new value of the player.
+		 */
+		public long increment(Player player) {
+			return add(player, 1);
+		}
+
+		@Override
+		protected void rehash(int[] slots, int capacity) {
+			long[] values = new long[capacity];
+			for (int i = 0; i < slots.length; i++)
+				if (slots[i] >= 0)
+					values[slots[i]] = this.values[i];
+			this.values = values;
+		}
+
+		@Override
+		protected void move(int from, int to) {
+			values[to] = values[from];
+		}
+
+		@Override
+		protected void clear(int slot) {
+			values[slot] = 0;
+		}
+
+		@Override
+		protected void clearValues() {
+			Arrays.fill(values, 0);
+		}
+
+		@Override
+		protected Long box(int slot) {
+			return values[slot];
+		}
+	}
+
+	public static class OfDouble extends AbstractPlayerDataStore<Double> {
+		private double[] values;
+
+		/**
+		 * Create a store that associates a double to players, 0 being the value of players not in this store.
+		 */
+		public OfDouble() {
+			values = new double[capacity()];
+		}
+
+		/**
+		 * @param uuid The unique identifier of a player.
+		 * @return The value associated to the player, 0 if no value is associated to the player.
+		 */
+		public double get(UUID uuid) {
+			int slot = find(uuid);
+			return slot < 0 ? 0 : values[slot];
+		}
+
+		/**
+		 * @param player A player.
+		 * @return The value associated to the player, 0 if no value is associated to the player.
+		 */
+		public double get(Player player) {
+			return get(player.getUniqueId());
+		}
+
+		/**
+		 * Associate the given value to the player associated to the given identifier.
+		 *
+		 * @param uuid  The unique identifier of a player.
+		 * @param value The value of the player.
+		 */
+		public void put(UUID uuid, double value) {
+			values[insert(uuid)] = value;
+		}
+
+		/**
+		 * Associate the given value to the given player.
+		 *
+		 * @param player A player.
+		 * @param value  The value of the player.
+		 */
+		public void put(Player player, double value) {
+			put(player.getUniqueId(), value);
+		}
+
+		/**
+		 * Add the given delta to the value associated to the player associated to the given identifier.
+		 *
+		 * @param uuid  The unique identifier of a player.
+		 * @param delta The value to add.
+		 * @return The new value of the player.
+		 */
+		public double add(UUID uuid, double delta) {
+			int slot = insert(uuid);
+			return values[slot] += delta;
+		}
+
+		/**
+		 * Add the given delta to the value associated to the given player.
+		 *
+		 * @param player A player.
+		 * @param delta  The value to add.
+		 * @return The new value of the player.
+		 */
+		public double add(Player player, double delta) {
+			return add(player.getUniqueId(), delta);
+		}
+
+		@Override
+		protected void rehash(int[] slots, int capacity) {
+			double[] values = new double[capacity];
+			for (int i = 0; i < slots.length; i++)
+				if (slots[i] >= 0)
+					values[slots[i]] = this.values[i];
+			this.values = values;
+		}
+
+		@Override
+		protected void move(int from, int to) {
+			values[to] = values[from];
+		}
+
+		@Override
+		protected void clear(int slot) {
+			values[slot] = 0;
+		}
+
+		@Override
+		protected void clearValues() {
+			Arrays.fill(values, 0);
+		}
+
+		@Override
+		protected Double box(int slot) {
+			return values[slot];
+		}
+	}
+}
@@ -1,8 +1,15 @@
 package fr.pederobien.minecraft.managers;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Stream;
 
 import org.bukkit.GameMode;
@@ -12,26 +19,51 @@ import org.bukkit.attribute.Attribute;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scoreboard.Team;
 
 public class PlayerManager {
 	public static final int MAX_EFFECT_DURATION = 999999;
 	public static final int MAX_EFFECT_AMPLIFIER = 99;
+	private static final PlayerRegistry REGISTRY = new PlayerRegistry();
+	private static final Map<UUID, PlayerSnapshot> SNAPSHOTS = new HashMap<UUID, PlayerSnapshot>();
+
+	/**
+	 * Get the registry that keeps a snapshot of the players currently logged into the server. Once registered on the server, this
+	 * snapshot is used by this manager instead of copying the online players on each call.
+	 * 
+	 * @return The registry of online players.
+	 */
+	public static PlayerRegistry getRegistry() {
+		return REGISTRY;
+	}
 
 	/**
 	 * @return A stream that contains all players currently logged into the server.
+	 * 
+	 * @see #getPlayersSnapshot()
 	 */
 	public static Stream<Player> getPlayers() {
-		List<Player> players = new ArrayList<>();
-		for (Player player : BukkitManager.getOnlinePlayers())
-			players.add(player);
-		return players.stream();
+		return getPlayersSnapshot().stream();
+	}
+
+	/**
+	 * Get an unmodifiable snapshot of the players currently logged into the server. If the registry is available, the snapshot is
+	 * shared and only rebuilt when a player joins or leaves the server. Otherwise, the online players are copied.
+	 * 
+	 * @return An unmodifiable list that contains all players currently logged into the server.
+	 */
+	public static List<Player> getPlayersSnapshot() {
+		if (REGISTRY.isAvailable())
+			return REGISTRY.getPlayers();
+		return Collections.unmodifiableList(new ArrayList<Player>(BukkitManager.getOnlinePlayers()));
 	}
 
 	/**
 	 * @return The number of player currently logged into the server
 	 */
 	public static long getNumberOfPlayer() {
-		return getPlayers().count();
+		return REGISTRY.isAvailable() ? REGISTRY.size() : BukkitManager.getOnlinePlayers().size();
 	}
 
 	/**
@@ -43,10 +75,39 @@ public class PlayerManager {
 	 * @return a player if one was found, null otherwise
 	 */
 	public static Player getPlayer(String name) {
-		for (Player player : BukkitManager.getOnlinePlayers())
-			if (player.getName().equals(name))
-				return player;
-		return null;
+		if (REGISTRY.isAvailable())
+			return REGISTRY.getPlayer(name);
+
+		// The server looks the name up ignoring case considerations.
+		Player player = BukkitManager.getPlayerExact(name);
+		return player != null && player.getName().equals(name) ? player : null;
+	}
+
+	/**
+	 * Gets a player object by the given username, ignoring case considerations.
+	 * <p>
+	 * This method may not return objects for offline players.
+	 *
+	 * @param name the name to look up
+	 * @return a player if one was found, null otherwise
+	 */
+	public static Player getPlayerIgnoreCase(String name) {
+		if (REGISTRY.isAvailable())
+			return REGISTRY.getPlayerIgnoreCase(name);
+
+		return BukkitManager.getPlayerExact(name);
+	}
+
+	/**
+	 * Gets a player object by the given unique identifier.
+	 * <p>
+	 * This method may not return objects for offline players.
+	 *
+	 * @param uuid the unique identifier to look up
+	 * @return a player if one was found, null otherwise
+	 */
+	public static Player getPlayer(UUID uuid) {
+		return REGISTRY.isAvailable() ? REGISTRY.getPlayer(uuid) : BukkitManager.getPlayer(uuid);
 	}
 
 	/**
@@ -56,8 +117,11 @@ public class PlayerManager {
 	 * @return The player's language if it exists, null otherwise.
 	 * 
 	 * @see Locale#forLanguageTag(String)
+	 * @see PlayerRegistry#getLocale(Player)
 	 */
 	public static Locale getPlayerLocale(Player player) {
+		if (REGISTRY.isAvailable())
+			return REGISTRY.getLocale(player);
 		return Locale.forLanguageTag(player.getLocale().replace('_', '-'));
 	}
 
@@ -79,6 +143,18 @@ public class PlayerManager {
 		players.forEach(p -> removeInventoryOfPlayer(p));
 	}
 
+	/**
+	 * Clear the inventory of each player in the stream. The inventories are cleared across several ticks by the given executor.
+	 * 
+	 * @param executor The executor used to spread the operations across ticks.
+	 * @param players  A stream that contains all players which the inventory should be cleared.
+	 * 
+	 * @return The batch that contains the progress of the operations.
+	 */
+	public static BulkExecutor.Batch removeInventoryOfPlayers(BulkExecutor executor, Stream<Player> players) {
+		return executor.submit(players, p -> removeInventoryOfPlayer(p));
+	}
+
 	/**
 	 * Clear the inventory of each player currently logged into the server.
 	 * 
@@ -86,7 +162,8 @@ public class PlayerManager {
 	 * @see #getPlayers()
 	 */
 	public static void removeInventoryOfPlayers() {
-		removeInventoryOfPlayers(getPlayers());
+		for (Player player : getPlayersSnapshot())
+			removeInventoryOfPlayer(player);
 	}
 
 	/**
@@ -117,7 +194,8 @@ public class PlayerManager {
 	 * @see #getPlayers()
 	 */
 	public static void setExpLevelOfPlayers(int level) {
-		setExpLevelOfPlayers(getPlayers(), level);
+		for (Player player : getPlayersSnapshot())
+			setExpLevelOfPlayer(player, level);
 	}
 
 	/**
@@ -156,7 +234,8 @@ public class PlayerManager {
 	 * @see #getPlayers()
 	 */
 	public static void setFoodLevelOfPlayers(int level) {
-		setFoodLevelOfPlayers(getPlayers(), level);
+		for (Player player : getPlayersSnapshot())
+			setFoodLevelOfPlayer(player, level);
 	}
 
 	/**
@@ -198,7 +277,8 @@ public class PlayerManager {
 	 * @param level The max health all player should have after the call to this method.
 	 */
 	public static void setMaxHealthOfPlayers(double level) {
-		setMaxHealthOfPlayers(getPlayers(), level);
+		for (Player player : getPlayersSnapshot())
+			setMaxHealthOfPlayer(player, level);
 	}
 
 	/**
@@ -216,7 +296,8 @@ public class PlayerManager {
 	 * @see #resetMaxHealthOfPlayer(Player)
 	 */
 	public static void resetMaxHealthOfPlayers() {
-		getPlayers().forEach(p -> resetMaxHealthOfPlayer(p));
+		for (Player player : getPlayersSnapshot())
+			resetMaxHealthOfPlayer(player);
 	}
 
 	/**
@@ -246,7 +327,8 @@ public class PlayerManager {
 	 * @see #setHealthOfPlayers(Stream, double)
 	 */
 	public static void setHealthOfPlayers(double level) {
-		setHealthOfPlayers(getPlayers(), level);
+		for (Player player : getPlayersSnapshot())
+			setHealthOfPlayer(player, level);
 	}
 
 	/**
@@ -256,6 +338,143 @@ public class PlayerManager {
 		setHealthOfPlayers(20);
 	}
 
+	/**
+	 * Apply the given template to the specified player.
+	 * 
+	 * @param player The player to modify.
+	 * @param state  The template to apply.
+	 * 
+	 * @return The number of fields of the player that have been modified.
+	 * 
+	 * @see PlayerState#apply(Player)
+	 */
+	public static int applyState(Player player, PlayerState state) {
+		return state.apply(player);
+	}
+
+	/**
+	 * Apply the given template to each player in the stream, in one pass.
+	 * 
+	 * @param players A stream that contains all players to modify.
+	 * @param state   The template to apply.
+	 * 
+	 * @see PlayerState#apply(Player)
+	 */
+	public static void applyState(Stream<Player> players, PlayerState state) {
+		players.forEach(p -> applyState(p, state));
+	}
+
+	/**
+	 * Apply the given template to each player currently logged into the server, in one pass.
+	 * 
+	 * @param state The template to apply.
+	 * 
+	 * @see PlayerState#apply(Player)
+	 */
+	public static void applyStateToAllPlayers(PlayerState state) {
+		for (Player player : getPlayersSnapshot())
+			applyState(player, state);
+	}
+
+	/**
+	 * Capture the state of the given player and store it until it is restored. A previous snapshot of the player is replaced.
+	 * 
+	 * @param player The player whose the state is captured.
+	 * 
+	 * @return The snapshot of the player.
+	 * 
+	 * @see PlayerSnapshot
+	 */
+	public static PlayerSnapshot takeSnapshot(Player player) {
+		PlayerSnapshot snapshot = PlayerSnapshot.of(player);
+		SNAPSHOTS.put(player.getUniqueId(), snapshot);
+		return snapshot;
+	}
+
+	/**
+	 * Capture and store the state of each player in the stream.
+	 * 
+	 * @param players A stream that contains all players whose the state is captured.
+	 * 
+	 * @see #takeSnapshot(Player)
+	 */
+	public static void takeSnapshots(Stream<Player> players) {
+		players.forEach(p -> takeSnapshot(p));
+	}
+
+	/**
+	 * Capture and store the state of each player of the team currently logged into the server.
+	 * 
+	 * @param team The team whose the players are captured.
+	 * 
+	 * @see #takeSnapshot(Player)
+	 */
+	public static void takeSnapshots(Team team) {
+		takeSnapshots(TeamManager.getPlayers(team));
+	}
+
+	/**
+	 * Get the stored snapshot of the player associated to the given identifier.
+	 * 
+	 * @param uuid The unique identifier of the player.
+	 * 
+	 * @return An optional that contains the snapshot of the player if stored, an empty optional otherwise.
+	 */
+	public static Optional<PlayerSnapshot> getSnapshot(UUID uuid) {
+		return Optional.ofNullable(SNAPSHOTS.get(uuid));
+	}
+
+	/**
+	 * Remove the stored snapshot of the player associated to the given identifier without restoring it.
+	 * 
+	 * @param uuid The unique identifier of the player.
+	 * 
+	 * @return An optional that contains the removed snapshot if stored, an empty optional otherwise.
+	 */
+	public static Optional<PlayerSnapshot> removeSnapshot(UUID uuid) {
+		return Optional.ofNullable(SNAPSHOTS.remove(uuid));
+	}
+
+	/**
+	 * Restore the state of the given player from its stored snapshot. Once restored, the snapshot is removed.
+	 * 
+	 * @param player The player whose the state is restored.
+	 * 
+	 * @return True if a snapshot was stored for the player, false otherwise.
+	 * 
+	 * @see PlayerSnapshot#restore(Player)
+	 */
+	public static boolean restoreSnapshot(Player player) {
+		PlayerSnapshot snapshot = SNAPSHOTS.remove(player.getUniqueId());
+		if (snapshot == null)
+			return false;
+
+		snapshot.restore(player);
+		return true;
+	}
+
+	/**
+	 * Restore the state of each player in the stream from its stored snapshot.
+	 * 
+	 * @param players A stream that contains all players whose the state is restored.
+	 * 
+	 * @see #restoreSnapshot(Player)
+	 */
+	public static void restoreSnapshots(Stream<Player> players) {
+		players.forEach(p -> restoreSnapshot(p));
+	}
+
+	/**
+	 * Restore the state of each player of the team currently logged into the server from its stored snapshot.
+	 * 
+	 * @param team The team whose the players are restored.
+	 * 
+	 * @see #restoreSnapshot(Player)
+	 */
+	public static void restoreSnapshots(Team team) {
+		restoreSnapshots(TeamManager.getPlayers(team));
+	}
+
 	/**
 	 * Get a stream that contains all player that have the specified game mode from the given stream.
 	 * 
@@ -276,6 +495,9 @@ public class PlayerManager {
 	 * @see #getPlayersOnMode(Stream, GameMode)
 	 */
 	public static Stream<Player> getPlayersOnMode(GameMode mode) {
+		// Copying the facet, callers may modify the game mode of the players while iterating.
+		if (REGISTRY.isAvailable())
+			return new ArrayList<Player>(REGISTRY.getPlayers(mode)).stream();
 		return getPlayersOnMode(getPlayers(), mode);
 	}
 
@@ -286,9 +508,37 @@ public class PlayerManager {
 	 * @return The number of player with the specified game mode.
 	 */
 	public static long getNumberOfPlayersOnMode(GameMode mode) {
+		if (REGISTRY.isAvailable())
+			return REGISTRY.getPlayers(mode).size();
 		return getPlayersOnMode(mode).count();
 	}
 
+	/**
+	 * Get a stream that contains all player in the given world with the specified game mode.
+	 * 
+	 * @param world The world in which players are.
+	 * @param mode  The game mode of the players.
+	 * @return A stream that contains all players in the world with the game mode.
+	 */
+	public static Stream<Player> getPlayersOnMode(World world, GameMode mode) {
+		if (REGISTRY.isAvailable())
+			return new ArrayList<Player>(REGISTRY.getPlayers(world, mode)).stream();
+		return getPlayersOnMode(WorldManager.getPlayerInWorld(world), mode);
+	}
+
+	/**
+	 * Get the number of player in the given world with the specified game mode.
+	 * 
+	 * @param world The world in which players are.
+	 * @param mode  The game mode of the players.
+	 * @return The number of players in the world with the game mode.
+	 */
+	public static long getNumberOfPlayersOnMode(World world, GameMode mode) {
+		if (REGISTRY.isAvailable())
+			return REGISTRY.getPlayers(world, mode).size();
+		return getPlayersOnMode(world, mode).count();
+	}
+
 	/**
 	 * Set the game mode of the specified player.
 	 * 
@@ -309,6 +559,19 @@ public class PlayerManager {
 		players.forEach(p -> setGameModeOfPlayer(p, mode));
 	}
 
+	/**
+	 * Set the game mode of each player in the stream. The game modes are modified across several ticks by the given executor.
+	 * 
+	 * @param executor The executor used to spread the operations across ticks.
+	 * @param players  A stream that contains all player which the game mode should be changed.
+	 * @param mode     The new game mode of each player in the specified stream.
+	 * 
+	 * @return The batch that contains the progress of the operations.
+	 */
+	public static BulkExecutor.Batch setGameModeOfPlayers(BulkExecutor executor, Stream<Player> players, GameMode mode) {
+		return executor.submit(players, p -> setGameModeOfPlayer(p, mode));
+	}
+
 	/**
 	 * All players that have the game mode <code>oldMode</code> will have the game mode <code>newMode</code>.
 	 * 
@@ -328,7 +591,8 @@ public class PlayerManager {
 	 * @param mode The new game mode of players.
 	 */
 	public static void setGameModeOfAllPlayers(GameMode mode) {
-		setGameModeOfPlayers(getPlayers(), mode);
+		for (Player player : getPlayersSnapshot())
+			setGameModeOfPlayer(player, mode);
 	}
 
 	/**
@@ -353,6 +617,22 @@ public class PlayerManager {
 		players.forEach(p -> teleporte(p, location));
 	}
 
+	/**
+	 * Teleport each player present in the stream <code>players</code> at the given location. The players are teleported across
+	 * several ticks by the given executor.
+	 * 
+	 * @param executor The executor used to spread the operations across ticks.
+	 * @param players  A stream that contains all player to teleport.
+	 * @param location The new location to teleport all player to.
+	 * 
+	 * @return The batch that contains the progress of the operations.
+	 * 
+	 * @see #teleporte(Player, Location)
+	 */
+	public static BulkExecutor.Batch teleportePlayers(BulkExecutor executor, Stream<Player> players, Location location) {
+		return executor.submit(players, p -> teleporte(p, location));
+	}
+
 	/**
 	 * Teleport the player to the target Entity. If this entity is riding a vehicle, it will be dismounted prior to teleportation.
 	 *
@@ -375,6 +655,22 @@ public class PlayerManager {
 		players.forEach(p -> teleporte(p, entity));
 	}
 
+	/**
+	 * Teleport each player present in the stream <code>players</code> to given entity. The players are teleported across several
+	 * ticks by the given executor.
+	 * 
+	 * @param executor The executor used to spread the operations across ticks.
+	 * @param players  A stream that contains all player to teleport.
+	 * @param entity   The entity to teleport all player to.
+	 * 
+	 * @return The batch that contains the progress of the operations.
+	 * 
+	 * @see #teleporte(Player, Entity)
+	 */
+	public static BulkExecutor.Batch teleportePlayers(BulkExecutor executor, Stream<Player> players, Entity entity) {
+		return executor.submit(players, p -> teleporte(p, entity));
+	}
+
 	/**
 	 * Teleport all players currently logged into the server to the specified location.
 	 * 
@@ -384,7 +680,8 @@ public class PlayerManager {
 	 * @see #teleporte(Player, Location)
 	 */
 	public static void teleporteAllPlayers(Location location) {
-		getPlayers().forEach(p -> teleporte(p, location));
+		for (Player player : getPlayersSnapshot())
+			teleporte(player, location);
 	}
 
 	/**
@@ -396,7 +693,76 @@ public class PlayerManager {
 	 * @see #teleporte(Player, Location)
 	 */
 	public static void teleporteAllPlayers(Entity entity) {
-		getPlayers().forEach(p -> teleporte(p, entity));
+		for (Player player : getPlayersSnapshot())
+			teleporte(player, entity);
+	}
+
+	/**
+	 * Create a mass teleport whose destination chunks are loaded and held by a chunk ticket, under a per-tick budget, before
+	 * teleporting the players.
+	 * 
+	 * @param plugin The plugin that owns the chunk tickets.
+	 * 
+	 * @return The created mass teleport, to start once each player has been registered.
+	 */
+	public static MassTeleport createMassTeleport(Plugin plugin) {
+		return new MassTeleport(plugin);
+	}
+
+	/**
+	 * Create a mass teleport whose destination chunks are loaded by the given executor and held by a chunk ticket before teleporting
+	 * the players.
+	 * 
+	 * @param executor The executor that loads the chunks, its plugin owns the chunk tickets.
+	 * 
+	 * @return The created mass teleport, to start once each player has been registered.
+	 */
+	public static MassTeleport createMassTeleport(BulkExecutor executor) {
+		return new MassTeleport(executor);
+	}
+
+	/**
+	 * Teleport each player to its associated location once the destination chunks have been loaded.
+	 * 
+	 * @param plugin       The plugin that owns the chunk tickets.
+	 * @param destinations A map that contains the location of each player to teleport.
+	 * 
+	 * @return A future completed once the players have been teleported and the chunk tickets released.
+	 * 
+	 * @see MassTeleport
+	 */
+	public static CompletableFuture<MassTeleport> teleportePlayers(Plugin plugin, Map<Player, Location> destinations) {
+		return createMassTeleport(plugin).add(destinations).start();
+	}
+
+	/**
+	 * Teleport each player present in the stream <code>players</code> at the given location once the destination chunk has been
+	 * loaded.
+	 * 
+	 * @param plugin   The plugin that owns the chunk ticket.
+	 * @param players  A stream that contains all player to teleport.
+	 * @param location The new location to teleport all player to.
+	 * 
+	 * @return A future completed once the players have been teleported and the chunk ticket released.
+	 * 
+	 * @see MassTeleport
+	 */
+	public static CompletableFuture<MassTeleport> teleportePlayers(Plugin plugin, Stream<Player> players, Location location) {
+		return createMassTeleport(plugin).add(players, location).start();
+	}
+
+	/**
+	 * Teleport all players currently logged into the server to the specified location once the destination chunk has been loaded.
+	 * 
+	 * @param plugin   The plugin that owns the chunk ticket.
+	 * @param location The new location to teleport all player to.
+	 * 
+	 * @return A future completed once the players have been teleported and the chunk ticket released.
+	 * 
+	 * @see MassTeleport
+	 */
+	public static CompletableFuture<MassTeleport> teleporteAllPlayers(Plugin plugin, Location location) {
+		return teleportePlayers(plugin, getPlayers(), location);
 	}
 
 	/**
@@ -422,11 +788,87 @@ public class PlayerManager {
 		players.forEach(p -> dropPlayerInventoryItemNaturally(p));
 	}
 
+	/**
+	 * Call method {@link #dropPlayerInventoryItemNaturally(Player)} for each player present in the specified stream. The inventories
+	 * are dropped across several ticks by the given executor.
+	 * 
+	 * @param executor The executor used to spread the operations across ticks.
+	 * @param players  A stream that contains all player to drop their inventory.
+	 * 
+	 * @return The batch that contains the progress of the operations.
+	 */
+	public static BulkExecutor.Batch dropPlayersInventoryItemNaturally(BulkExecutor executor, Stream<Player> players) {
+		return executor.submit(players, p -> dropPlayerInventoryItemNaturally(p));
+	}
+
 	/**
 	 * Call method {@link #dropPlayersInventoryItemNaturally(Stream)} with stream returned by {@link #getPlayers()}
 	 */
 	public static void dropPlayersInventoryItemNaturally() {
-		dropPlayersInventoryItemNaturally(getPlayers());
+		for (Player player : getPlayersSnapshot())
+			dropPlayerInventoryItemNaturally(player);
+	}
+
+	/**
+	 * Drop all item present in the player's inventory at the current location of the player. Similar items are merged up to their
+	 * maximum stack size before being dropped in order to spawn as few item entities as possible.
+	 * 
+	 * @param player The player used to drop its inventory.
+	 * 
+	 * @see ItemStack#isSimilar(ItemStack)
+	 */
+	public static void dropPlayerInventoryItemMerged(Player player) {
+		Location location = player.getLocation();
+		List<ItemStack> merged = new ArrayList<ItemStack>();
+		Map<ItemStack, ItemStack> pending = new HashMap<ItemStack, ItemStack>();
+		merge(player, pending, merged);
+		drop(location, pending, merged);
+	}
+
+	/**
+	 * Drop the inventory of each player present in the specified stream. Players are grouped in square cells of the given size, on X
+	 * and Z, and players of the same cell share their drops : similar items of those players are merged up to their maximum stack
+	 * size and dropped at the location of the first of them.
+	 * 
+	 * @param players A stream that contains all player to drop their inventory.
+	 * @param size    The side, in blocks, of the cells in which drops are grouped.
+	 * 
+	 * @see #dropPlayerInventoryItemMerged(Player)
+	 */
+	public static void dropPlayersInventoryItemMerged(Stream<Player> players, double size) {
+		if (size <= 0)
+			throw new IllegalArgumentException("The size of the cells must be strictly positive");
+
+		Map<Location, Location> locations = new LinkedHashMap<Location, Location>();
+		Map<Location, List<ItemStack>> merged = new HashMap<Location, List<ItemStack>>();
+		Map<Location, Map<ItemStack, ItemStack>> pending = new HashMap<Location, Map<ItemStack, ItemStack>>();
+
+		players.forEach(player -> {
+			Location location = player.getLocation();
+			Location cell = new Location(location.getWorld(), Math.floor(location.getX() / size), 0, Math.floor(location.getZ() / size));
+			locations.putIfAbsent(cell, location);
+			merge(player, pending.computeIfAbsent(cell, key -> new HashMap<ItemStack, ItemStack>()),
+					merged.computeIfAbsent(cell, key -> new ArrayList<ItemStack>()));
+		});
+
+		locations.forEach((cell, location) -> drop(location, pending.get(cell), merged.get(cell)));
+	}
+
+	/**
+	 * Call method {@link #dropPlayersInventoryItemMerged(Stream, double)} with cells of the size of a chunk, so that players dying
+	 * together share their drops.
+	 * 
+	 * @param players A stream that contains all player to drop their inventory.
+	 */
+	public static void dropPlayersInventoryItemMerged(Stream<Player> players) {
+		dropPlayersInventoryItemMerged(players, 16);
+	}
+
+	/**
+	 * Call method {@link #dropPlayersInventoryItemMerged(Stream)} with stream returned by {@link #getPlayers()}
+	 */
+	public static void dropPlayersInventoryItemMerged() {
+		dropPlayersInventoryItemMerged(getPlayers());
 	}
 
 	/**
@@ -448,4 +890,50 @@ public class PlayerManager {
 	public static void killPlayers(Stream<Player> players) {
 		players.forEach(p -> killPlayer(p));
 	}
+
+	/**
+	 * Merge the items of the inventory of the player and clear it. The key of the pending map is a single item similar to the value,
+	 * the value is the stack that can still receive similar items. Full stacks are added to the merged list.
+	 */
+	private static void merge(Player player, Map<ItemStack, ItemStack> pending, List<ItemStack> merged) {
+		for (ItemStack item : player.getInventory()) {
+			if (item == null || item.getAmount() <= 0)
+				continue;
+
+			int max = item.getMaxStackSize();
+			if (max <= 1) {
+				merged.add(item.clone());
+				continue;
+			}
+
+			ItemStack key = item.clone();
+			key.setAmount(1);
+
+			int amount = item.getAmount();
+			while (amount > 0) {
+				ItemStack stack = pending.get(key);
+				int added;
+				if (stack == null) {
+					added = Math.min(amount, max);
+					stack = item.clone();
+					stack.setAmount(added);
+					pending.put(key, stack);
+				} else {
+					added = Math.min(amount, max - stack.getAmount());
+					stack.setAmount(stack.getAmount() + added);
+				}
+
+				amount -= added;
+				if (stack.getAmount() >= max)
+					merged.add(pending.remove(key));
+			}
+		}
+		player.getInventory().clear();
+	}
+
+	private static void drop(Location location, Map<ItemStack, ItemStack> pending, List<ItemStack> merged) {
+		merged.addAll(pending.values());
+		for (ItemStack item : merged)
+			location.getWorld().dropItemNaturally(location, item);
+	}
 }
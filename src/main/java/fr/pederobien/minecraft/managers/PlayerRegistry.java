@@ -0,0 +1,318 @@
+package fr.pederobien.minecraft.managers;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.bukkit.GameMode;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerGameModeChangeEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerLocaleChangeEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+public class PlayerRegistry extends EventListener {
+	private static final Set<String> LANGUAGES = new HashSet<String>(Arrays.asList(Locale.getISOLanguages()));
+	private static final Set<String> COUNTRIES = new HashSet<String>(Arrays.asList(Locale.getISOCountries()));
+	private static final Map<Locale, Locale> LOCALES = new ConcurrentHashMap<Locale, Locale>();
+	private volatile List<Player> players;
+	private Map<UUID, Player> byId;
+	private Map<UUID, Locale> locales;
+	private Map<String, Player> byName, byLowerCaseName;
+	private Map<UUID, GameMode> modes;
+	private Map<UUID, World> worlds;
+	private Map<GameMode, Set<Player>> byMode;
+	private Map<World, Set<Player>> byWorld;
+	private Map<World, Map<GameMode, Set<Player>>> byWorldAndMode;
+
+	protected PlayerRegistry() {
+		players = null;
+		byId = new ConcurrentHashMap<UUID, Player>();
+		locales = new ConcurrentHashMap<UUID, Locale>();
+		byName = new ConcurrentHashMap<String, Player>();
+		byLowerCaseName = new ConcurrentHashMap<String, Player>();
+		modes = new HashMap<UUID, GameMode>();
+		worlds = new HashMap<UUID, World>();
+		byMode = new EnumMap<GameMode, Set<Player>>(GameMode.class);
+		byWorld = new HashMap<World, Set<Player>>();
+		byWorldAndMode = new HashMap<World, Map<GameMode, Set<Player>>>();
+		setActivated(true);
+	}
+
+	/**
+	 * The registry is only used by the {@link PlayerManager} when it is registered on the server, activated and built. Otherwise it
+	 * cannot be notified when players join or leave the server. The registry is built on the main thread when it is registered and
+	 * each time it is activated again.
+	 *
+	 * @return True if this registry is registered, activated and built, false otherwise.
+	 */
+	public boolean isAvailable() {
+		return isRegistered() && isActivated() && players != null;
+	}
+
+	@Override
+	public void setActivated(boolean isActivated) {
+		super.setActivated(isActivated);
+
+		// Joins and quits are missed while deactivated, the snapshot and its facets are dropped and taken again from the server.
+		if (!isActivated)
+			clear();
+		else if (isRegistered() && players == null)
+			rebuild(null);
+	}
+
+	/**
+	 * Get an unmodifiable snapshot of the players currently logged into the server. The snapshot is only rebuilt, from the main
+	 * thread, when a player joins or leaves the server. Once published, it can be iterated without copy and read from any thread.
+	 *
+	 * @return An unmodifiable list that contains all players currently logged into the server, an empty list if this registry is not
+	 *         built and this method is not called from the main thread.
+	 */
+	public List<Player> getPlayers() {
+		List<Player> players = this.players;
+		if (players != null)
+			return players;
+
+		// The facets of this registry cannot be modified from another thread than the main thread.
+		return BukkitManager.isPrimaryThread() ? rebuild(null) : Collections.emptyList();
+	}
+
+	/**
+	 * @return The number of players currently logged into the server.
+	 */
+	public int size() {
+		return getPlayers().size();
+	}
+
+	/**
+	 * Get the player currently logged into the server whose name is exactly the given name.
+	 *
+	 * @param name The name of the player.
+	 * @return The player associated to the name, null if no player is associated to this name.
+	 */
+	public Player getPlayer(String name) {
+		getPlayers();
+		return byName.get(name);
+	}
+
+	/**
+	 * Get the player currently logged into the server whose name is equal to the given name, ignoring case considerations.
+	 *
+	 * @param name The name of the player.
+	 * @return The player associated to the name, null if no player is associated to this name.
+	 */
+	public Player getPlayerIgnoreCase(String name) {
+		getPlayers();
+		return byLowerCaseName.get(name.toLowerCase(Locale.ROOT));
+	}
+
+	/**
+	 * Get the player currently logged into the server associated to the given unique identifier.
+	 *
+	 * @param uuid The unique identifier of the player.
+	 * @return The player associated to the identifier, null if no player is associated to this identifier.
+	 */
+	public Player getPlayer(UUID uuid) {
+		getPlayers();
+		return byId.get(uuid);
+	}
+
+	/**
+	 * Get the locale of the given player. The locale of each player currently logged into the server is parsed once, when the player
+	 * joins the server or changes its language. Players using the same standard language share the same instance.
+	 *
+	 * @param player The player used to get its language.
+	 * @return The player's language.
+	 */
+	public Locale getLocale(Player player) {
+		getPlayers();
+		Locale locale = locales.get(player.getUniqueId());
+		return locale == null ? intern(player.getLocale()) : locale;
+	}
+
+	/**
+	 * Get the players currently logged into the server with the given game mode. This method must be called from the main thread.
+	 *
+	 * @param mode The game mode of the players.
+	 * @return An unmodifiable view on the players with the game mode.
+	 */
+	public Set<Player> getPlayers(GameMode mode) {
+		getPlayers();
+		return view(byMode.get(mode));
+	}
+
+	/**
+	 * Get the players currently in the given world. This method must be called from the main thread.
+	 *
+	 * @param world The world of the players.
+	 * @return An unmodifiable view on the players in the world.
+	 */
+	public Set<Player> getPlayers(World world) {
+		getPlayers();
+		return view(byWorld.get(world));
+	}
+
+	/**
+	 * Get the players currently in the given world with the specified game mode. This method must be called from the main thread.
+	 *
+	 * @param world The world of the players.
+	 * @param mode  The game mode of the players.
+	 * @return An unmodifiable view on the players in the world with the game mode.
+	 */
+	public Set<Player> getPlayers(World world, GameMode mode) {
+		getPlayers();
+		Map<GameMode, Set<Player>> modes = byWorldAndMode.get(world);
+		return view(modes == null ? null : modes.get(mode));
+	}
+
+	@Override
+	protected void onRegister() {
+		if (isActivated())
+			rebuild(null);
+	}
+
+	@EventHandler(priority = EventPriority.LOWEST)
+	public void onPlayerJoin(PlayerJoinEvent event) {
+		if (isActivated())
+			rebuild(null);
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR)
+	public void onPlayerQuit(PlayerQuitEvent event) {
+		if (isActivated())
+			rebuild(event.getPlayer());
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public void onPlayerGameModeChange(PlayerGameModeChangeEvent event) {
+		Player player = event.getPlayer();
+		if (!isActivated() || players == null || !byId.containsKey(player.getUniqueId()))
+			return;
+
+		// During the event, the game mode of the player has not been modified yet.
+		removeFacets(player);
+		addFacets(player, worlds.get(player.getUniqueId()), event.getNewGameMode());
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR)
+	public void onPlayerLocaleChange(PlayerLocaleChangeEvent event) {
+		if (isActivated() && players != null)
+			locales.computeIfPresent(event.getPlayer().getUniqueId(), (uuid, locale) -> intern(event.getLocale()));
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR)
+	public void onPlayerChangedWorld(PlayerChangedWorldEvent event) {
+		Player player = event.getPlayer();
+		if (!isActivated() || players == null || !byId.containsKey(player.getUniqueId()))
+			return;
+
+		removeFacets(player);
+		addFacets(player, player.getWorld(), player.getGameMode());
+	}
+
+	/**
+	 * Clear this registry. It is rebuilt the next time the online players are requested from the main thread.
+	 */
+	protected void clear() {
+		players = null;
+		byId.clear();
+		byName.clear();
+		byLowerCaseName.clear();
+		locales.clear();
+		modes.clear();
+		worlds.clear();
+		byMode.clear();
+		byWorld.clear();
+		byWorldAndMode.clear();
+	}
+
+	private List<Player> rebuild(Player quitting) {
+		Player[] array = new Player[BukkitManager.getOnlinePlayers().size()];
+		int size = 0;
+
+		// During the quit event, the player is still in the list of online players.
+		for (Player player : BukkitManager.getOnlinePlayers())
+			if (player != quitting && size < array.length)
+				array[size++] = player;
+
+		if (quitting != null)
+			remove(quitting);
+
+		for (int i = 0; i < size; i++)
+			if (byId.putIfAbsent(array[i].getUniqueId(), array[i]) == null)
+				add(array[i]);
+
+		return players = Collections.unmodifiableList(Arrays.asList(size == array.length ? array : Arrays.copyOf(array, size)));
+	}
+
+	private void add(Player player) {
+		byName.put(player.getName(), player);
+		byLowerCaseName.put(player.getName().toLowerCase(Locale.ROOT), player);
+		locales.put(player.getUniqueId(), intern(player.getLocale()));
+		addFacets(player, player.getWorld(), player.getGameMode());
+	}
+
+	private void remove(Player player) {
+		byId.remove(player.getUniqueId());
+		byName.remove(player.getName());
+		byLowerCaseName.remove(player.getName().toLowerCase(Locale.ROOT));
+		locales.remove(player.getUniqueId());
+		removeFacets(player);
+	}
+
+	private void addFacets(Player player, World world, GameMode mode) {
+		modes.put(player.getUniqueId(), mode);
+		worlds.put(player.getUniqueId(), world);
+		byMode.computeIfAbsent(mode, key -> new LinkedHashSet<Player>()).add(player);
+		byWorld.computeIfAbsent(world, key -> new LinkedHashSet<Player>()).add(player);
+		byWorldAndMode.computeIfAbsent(world, key -> new EnumMap<GameMode, Set<Player>>(GameMode.class))
+				.computeIfAbsent(mode, key -> new LinkedHashSet<Player>()).add(player);
+	}
+
+	private void removeFacets(Player player) {
+		GameMode mode = modes.remove(player.getUniqueId());
+		World world = worlds.remove(player.getUniqueId());
+		if (mode != null)
+			remove(byMode.get(mode), player);
+		if (world != null) {
+			remove(byWorld.get(world), player);
+			Map<GameMode, Set<Player>> modes = byWorldAndMode.get(world);
+			if (modes != null && mode != null)
+				remove(modes.get(mode), player);
+		}
+	}
+
+	private void remove(Set<Player> players, Player player) {
+		if (players != null)
+			players.remove(player);
+	}
+
+	private static Locale intern(String tag) {
+		Locale locale = Locale.forLanguageTag(tag.replace('_', '-'));
+
+		// The tag is sent by the client, only locales made of a known language and country are shared so that the cache stays bounded.
+		if (!LANGUAGES.contains(locale.getLanguage()) || !(locale.getCountry().isEmpty() || COUNTRIES.contains(locale.getCountry()))
+				|| !locale.getScript().isEmpty() || !locale.getVariant().isEmpty() || locale.hasExtensions())
+			return locale;
+
+		Locale shared = LOCALES.putIfAbsent(locale, locale);
+		return shared == null ? locale : shared;
+	}
+
+	private Set<Player> view(Set<Player> players) {
+		return players == null ? Collections.emptySet() : Collections.unmodifiableSet(players);
+	}
+}
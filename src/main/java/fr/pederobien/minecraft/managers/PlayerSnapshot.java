@@ -0,0 +1,148 @@
+package fr.pederobien.minecraft.managers;
+
+import java.util.Collection;
+import java.util.StringJoiner;
+import java.util.UUID;
+
+import org.bukkit.GameMode;
+import org.bukkit.Location;
+import org.bukkit.attribute.Attribute;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.PlayerInventory;
+import org.bukkit.potion.PotionEffect;
+
+public class PlayerSnapshot {
+	private UUID uuid;
+	private ItemStack[] contents;
+	private PotionEffect[] effects;
+	private Location location;
+	private GameMode mode;
+	private double health, maxHealth;
+	private float exp, saturation;
+	private int level, food;
+
+	private PlayerSnapshot(Player player) {
+		uuid = player.getUniqueId();
+
+		// The contents of the inventory contain the storage, the armor and the extra slots.
+		ItemStack[] contents = player.getInventory().getContents();
+		this.contents = new ItemStack[contents.length];
+		for (int i = 0; i < contents.length; i++)
+			this.contents[i] = contents[i] == null ? null : contents[i].clone();
+
+		Collection<PotionEffect> effects = player.getActivePotionEffects();
+		this.effects = effects.toArray(new PotionEffect[effects.size()]);
+		location = player.getLocation();
+		mode = player.getGameMode();
+		health = player.getHealth();
+		maxHealth = player.getAttribute(Attribute.GENERIC_MAX_HEALTH).getBaseValue();
+		exp = player.getExp();
+		level = player.getLevel();
+		food = player.getFoodLevel();
+		saturation = player.getSaturation();
+	}
+
+	/**
+	 * Capture the state of the given player.
+	 *
+	 * @param player The player whose the state is captured.
+	 *
+	 * @return The snapshot of the player.
+	 */
+	public static PlayerSnapshot of(Player player) {
+		return new PlayerSnapshot(player);
+	}
+
+	/**
+	 * Restore the state of the given player as it was when this snapshot has been captured. The player is teleported last to its
+	 * captured location.
+	 *
+	 * @param player The player whose the state is restored.
+	 */
+	public void restore(Player player) {
+		if (player.getGameMode() != mode)
+			player.setGameMode(mode);
+
+		player.getAttribute(Attribute.GENERIC_MAX_HEALTH).setBaseValue(maxHealth);
+		player.setHealth(Math.min(health, player.getAttribute(Attribute.GENERIC_MAX_HEALTH).getValue()));
+		player.setFoodLevel(food);
+		player.setSaturation(saturation);
+		player.setLevel(level);
+		player.setExp(exp);
+
+		PlayerInventory inventory = player.getInventory();
+		ItemStack[] contents = new ItemStack[this.contents.length];
+		for (int i = 0; i < contents.length; i++)
+			contents[i] = this.contents[i] == null ? null : this.contents[i].clone();
+		inventory.setContents(contents);
+
+		for (PotionEffect effect : player.getActivePotionEffects())
+			player.removePotionEffect(effect.getType());
+		for (PotionEffect effect : effects)
+			player.addPotionEffect(effect);
+
+		player.teleport(location);
+	}
+
+	/**
+	 * @return The unique identifier of the player.
+	 */
+	public UUID getUniqueId() {
+		return uuid;
+	}
+
+	/**
+	 * @return A copy of the captured location of the player.
+	 */
+	public Location getLocation() {
+		return location.clone();
+	}
+
+	/**
+	 * @return The captured game mode of the player.
+	 */
+	public GameMode getGameMode() {
+		return mode;
+	}
+
+	/**
+	 * @return The captured health of the player.
+	 */
+	public double getHealth() {
+		return health;
+	}
+
+	/**
+	 * @return The captured base value of the max health attribute of the player.
+	 */
+	public double getMaxHealth() {
+		return maxHealth;
+	}
+
+	/**
+	 * @return The captured food level of the player.
+	 */
+	public int getFoodLevel() {
+		return food;
+	}
+
+	/**
+	 * @return The captured experience level of the player.
+	 */
+	public int getLevel() {
+		return level;
+	}
+
+	@Override
+	public String toString() {
+		StringJoiner joiner = new StringJoiner(", ", "{", "}");
+		joiner.add("player:" + uuid);
+		joiner.add("mode:" + mode);
+		joiner.add("health:" + health + "/" + maxHealth);
+		joiner.add("food:" + food);
+		joiner.add("level:" + level);
+		joiner.add("effects:" + effects.length);
+		return joiner.toString();
+	}
+}
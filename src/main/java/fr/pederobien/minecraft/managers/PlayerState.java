@@ -0,0 +1,247 @@
+package fr.pederobien.minecraft.managers;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.StringJoiner;
+
+import org.bukkit.GameMode;
+import org.bukkit.attribute.Attribute;
+import org.bukkit.attribute.AttributeInstance;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.PlayerInventory;
+import org.bukkit.potion.PotionEffect;
+import org.bukkit.potion.PotionEffectType;
+
+public class PlayerState {
+	private ItemStack[] inventory;
+	private Double health, maxHealth;
+	private Integer food, level;
+	private GameMode mode;
+	private Map<PotionEffectType, PotionEffect> effects;
+
+	/**
+	 * Create an empty template. A field that has not been set is not modified when the template is applied.
+	 */
+	public PlayerState() {
+	}
+
+	/**
+	 * Create a template equivalent to calling {@link PlayerManager#removeInventoryOfPlayer(Player)}, a level of experience equal to
+	 * 0, {@link PlayerManager#resetMaxHealthOfPlayer(Player)}, a food level and a health equal to 20 and
+	 * {@link PotionManager#removeAllEffects(Player)}. The game mode is not set.
+	 *
+	 * @return A new template to reset players between two rounds.
+	 */
+	public static PlayerState reset() {
+		return new PlayerState().clearInventory().setLevel(0).setMaxHealth(20).setHealth(20).setFood(20).clearEffects();
+	}
+
+	/**
+	 * Set the content of the inventory, see {@link PlayerInventory#getContents()} for the index of each slot. Slots after the last
+	 * given item are empty.
+	 *
+	 * @param contents The items of the inventory.
+	 *
+	 * @return This template.
+	 */
+	public PlayerState setInventory(ItemStack... contents) {
+		inventory = new ItemStack[contents.length];
+		for (int i = 0; i < contents.length; i++)
+			inventory[i] = contents[i] == null ? null : contents[i].clone();
+		return this;
+	}
+
+	/**
+	 * The inventory of players is cleared when this template is applied.
+	 *
+	 * @return This template.
+	 */
+	public PlayerState clearInventory() {
+		inventory = new ItemStack[0];
+		return this;
+	}
+
+	/**
+	 * Set the health of players. The health is modified after the max health.
+	 *
+	 * @param health The health of players.
+	 *
+	 * @return This template.
+	 */
+	public PlayerState setHealth(double health) {
+		this.health = health;
+		return this;
+	}
+
+	/**
+	 * Set the base value of the max health attribute of players.
+	 *
+	 * @param maxHealth The max health of players.
+	 *
+	 * @return This template.
+	 */
+	public PlayerState setMaxHealth(double maxHealth) {
+		this.maxHealth = maxHealth;
+		return this;
+	}
+
+	/**
+	 * Set the food level of players.
+	 *
+	 * @param food The food level of players.
+	 *
+	 * @return This template.
+	 */
+	public PlayerState setFood(int food) {
+		this.food = food;
+		return this;
+	}
+
+	/**
+	 * Set the experience level of players. The progress to the next level is reset.
+	 *
+	 * @param level The experience level of players.
+	 *
+	 * @return This template.
+	 */
+	public PlayerState setLevel(int level) {
+		this.level = level;
+		return this;
+	}
+
+	/**
+	 * Set the game mode of players.
+	 *
+	 * @param mode The game mode of players.
+	 *
+	 * @return This template.
+	 */
+	public PlayerState setGameMode(GameMode mode) {
+		this.mode = mode;
+		return this;
+	}
+
+	/**
+	 * Set the potion effects of players. Active effects whose type is not in the collection are removed.
+	 *
+	 * @param effects The potion effects of players.
+	 *
+	 * @return This template.
+	 */
+	public PlayerState setEffects(Collection<PotionEffect> effects) {
+		this.effects = new LinkedHashMap<PotionEffectType, PotionEffect>();
+		for (PotionEffect effect : effects)
+			this.effects.put(effect.getType(), effect);
+		return this;
+	}
+
+	/**
+	 * Set the potion effects of players. Active effects whose type is not in the array are removed.
+	 *
+	 * @param effects The potion effects of players.
+	 *
+	 * @return This template.
+	 */
+	public PlayerState setEffects(PotionEffect... effects) {
+		return setEffects(Arrays.asList(effects));
+	}
+
+	/**
+	 * Each active effect of players is removed when this template is applied.
+	 *
+	 * @return This template.
+	 */
+	public PlayerState clearEffects() {
+		return setEffects();
+	}
+
+	/**
+	 * Apply each field set in this template to the given player. A field whose value already matches the template is not modified, so
+	 * that no update is sent to the player for it. The potion effects are reconciled using
+	 * {@link PotionManager#reconcileEffects(Player, Collection)}.
+	 *
+	 * @param player The player to modify.
+	 *
+	 * @return The number of modified fields.
+	 */
+	public int apply(Player player) {
+		int modified = 0;
+		if (inventory != null && applyInventory(player))
+			modified++;
+
+		if (maxHealth != null) {
+			AttributeInstance attribute = player.getAttribute(Attribute.GENERIC_MAX_HEALTH);
+			if (attribute.getBaseValue() != maxHealth) {
+				attribute.setBaseValue(maxHealth);
+				modified++;
+			}
+		}
+
+		if (health != null && player.getHealth() != health) {
+			player.setHealth(health);
+			modified++;
+		}
+
+		if (food != null && player.getFoodLevel() != food) {
+			player.setFoodLevel(food);
+			modified++;
+		}
+
+		if (level != null && (player.getLevel() != level || player.getExp() != 0)) {
+			player.setLevel(level);
+			player.setExp(0);
+			modified++;
+		}
+
+		if (mode != null && player.getGameMode() != mode) {
+			player.setGameMode(mode);
+			modified++;
+		}
+
+		if (effects != null && PotionManager.reconcileEffects(player, effects.values()) > 0)
+			modified++;
+
+		return modified;
+	}
+
+	@Override
+	public String toString() {
+		StringJoiner joiner = new StringJoiner(", ", "{", "}");
+		if (inventory != null)
+			joiner.add("inventory:" + inventory.length + " slots");
+		if (maxHealth != null)
+			joiner.add("maxHealth:" + maxHealth);
+		if (health != null)
+			joiner.add("health:" + health);
+		if (food != null)
+			joiner.add("food:" + food);
+		if (level != null)
+			joiner.add("level:" + level);
+		if (mode != null)
+			joiner.add("mode:" + mode);
+		if (effects != null)
+			joiner.add("effects:" + effects.values());
+		return joiner.toString();
+	}
+
+	private boolean applyInventory(Player player) {
+		PlayerInventory playerInventory = player.getInventory();
+		ItemStack[] contents = playerInventory.getContents();
+		boolean matches = true;
+		for (int i = 0; matches && i < contents.length; i++)
+			matches = Objects.equals(contents[i], i < inventory.length ? inventory[i] : null);
+
+		if (matches)
+			return false;
+
+		ItemStack[] target = new ItemStack[contents.length];
+		for (int i = 0; i < target.length && i < inventory.length; i++)
+			target[i] = inventory[i] == null ? null : inventory[i].clone();
+		playerInventory.setContents(target);
+		return true;
+	}
+}
@@ -1,6 +1,10 @@
 package fr.pederobien.minecraft.managers;
 
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -14,6 +18,10 @@ public class PotionManager {
 	public static final int MIN_EFFECT_DURATION = 20;
 	public static final int MAX_EFFECT_AMPLIFIER = 99;
 	public static final int MIN_EFFECT_AMPLIFIER = 1;
+	public static final int DURATION_TOLERANCE = 200;
+	private static final Map<Preset, PotionEffect> PRESETS = new ConcurrentHashMap<Preset, PotionEffect>();
+	private static final Map<PotionEffectType, PotionEffect> MAX_PRESETS = new ConcurrentHashMap<PotionEffectType, PotionEffect>();
+	private static final Map<PotionEffectType, PotionEffect> MIN_PRESETS = new ConcurrentHashMap<PotionEffectType, PotionEffect>();
 
 	/**
 	 * Creates a potion effect with no defined color.
@@ -61,15 +69,103 @@ public class PotionManager {
 	}
 
 	/**
-	 * Creates a potion effect with no defined color. This method call {@link #createEffect(PotionEffectType, int, int)} with duration
-	 * equals {@value #MAX_EFFECT_DURATION} and amplifier equals {@value #MAX_EFFECT_AMPLIFIER}
+	 * Define a shared potion effect associated to the given parameters. Potion effects are immutable, once defined the same instance
+	 * is returned by {@link #getPreset(PotionEffectType, int, int, boolean, boolean)} for the same parameters. Presets are never
+	 * removed, they should only be defined for a bounded set of effects given repeatedly to players, not for computed durations.
+	 *
+	 * @param type      effect type
+	 * @param duration  measured in ticks, see {@link PotionEffect#getDuration()}
+	 * @param amplifier the amplifier, see {@link PotionEffect#getAmplifier()}
+	 * @param ambient   the ambient status, see {@link PotionEffect#isAmbient()}
+	 * @param particles the particle status, see {@link PotionEffect#hasParticles()}
+	 * 
+	 * @return The shared effect.
+	 */
+	public static PotionEffect definePreset(PotionEffectType type, int duration, int amplifier, boolean ambient, boolean particles) {
+		return PRESETS.computeIfAbsent(new Preset(type, duration, amplifier, ambient, particles), preset -> preset.create());
+	}
+
+	/**
+	 * Define a shared potion effect associated to the given parameters, with ambient and particles equal true.
+	 *
+	 * @param type      effect type
+	 * @param duration  measured in ticks, see {@link PotionEffect#getDuration()}
+	 * @param amplifier the amplifier, see {@link PotionEffect#getAmplifier()}
+	 * 
+	 * @return The shared effect.
+	 * 
+	 * @see #definePreset(PotionEffectType, int, int, boolean, boolean)
+	 */
+	public static PotionEffect definePreset(PotionEffectType type, int duration, int amplifier) {
+		return definePreset(type, duration, amplifier, true, true);
+	}
+
+	/**
+	 * Get the shared potion effect associated to the given parameters if it has been defined by
+	 * {@link #definePreset(PotionEffectType, int, int, boolean, boolean)}, otherwise a new effect is created and not kept. Each call
+	 * allocates the key used to find the shared effect, effects given repeatedly should be kept, for instance in an array returned by
+	 * {@link #getPresets(int, int, PotionEffectType...)}.
+	 *
+	 * @param type      effect type
+	 * @param duration  measured in ticks, see {@link PotionEffect#getDuration()}
+	 * @param amplifier the amplifier, see {@link PotionEffect#getAmplifier()}
+	 * @param ambient   the ambient status, see {@link PotionEffect#isAmbient()}
+	 * @param particles the particle status, see {@link PotionEffect#hasParticles()}
+	 * 
+	 * @return The shared effect if defined, a new effect otherwise.
+	 */
+	public static PotionEffect getPreset(PotionEffectType type, int duration, int amplifier, boolean ambient, boolean particles) {
+		PotionEffect effect = PRESETS.isEmpty() ? null : PRESETS.get(new Preset(type, duration, amplifier, ambient, particles));
+		return effect == null ? createEffect(type, duration, amplifier, ambient, particles) : effect;
+	}
+
+	/**
+	 * Get the shared potion effect associated to the given parameters, with ambient and particles equal true.
+	 *
+	 * @param type      effect type
+	 * @param duration  measured in ticks, see {@link PotionEffect#getDuration()}
+	 * @param amplifier the amplifier, see {@link PotionEffect#getAmplifier()}
+	 * 
+	 * @return The shared effect if defined, a new effect otherwise.
+	 * 
+	 * @see #getPreset(PotionEffectType, int, int, boolean, boolean)
+	 */
+	public static PotionEffect getPreset(PotionEffectType type, int duration, int amplifier) {
+		return getPreset(type, duration, amplifier, true, true);
+	}
+
+	/**
+	 * Get the potion effect for each given type with the given parameters, shared if it has been defined as a preset.
+	 *
+	 * @param duration  measured in ticks, see {@link PotionEffect#getDuration()}
+	 * @param amplifier the amplifier, see {@link PotionEffect#getAmplifier()}
+	 * @param types     The types of the effects.
+	 * 
+	 * @return An array that contains the effects, to keep in order to give them to players without allocation.
+	 * 
+	 * @see #getPreset(PotionEffectType, int, int)
+	 */
+	public static PotionEffect[] getPresets(int duration, int amplifier, PotionEffectType... types) {
+		PotionEffect[] effects = new PotionEffect[types.length];
+		for (int i = 0; i < types.length; i++)
+			effects[i] = getPreset(types[i], duration, amplifier);
+		return effects;
+	}
+
+	/**
+	 * Get the potion effect with no defined color, a duration equals {@value #MAX_EFFECT_DURATION} and an amplifier equals
+	 * {@value #MAX_EFFECT_AMPLIFIER}. Since potion effects are immutable, the returned instance is shared.
 	 *
 	 * @param type effect type
 	 * 
 	 * @return The associated effect.
 	 */
 	public static PotionEffect createEffectMaxDurationAndAmplifier(PotionEffectType type) {
-		return createEffect(type, MAX_EFFECT_DURATION, MAX_EFFECT_AMPLIFIER);
+		// Looking up by type first does not allocate once the effect has been created.
+		PotionEffect effect = MAX_PRESETS.get(type);
+		if (effect == null)
+			effect = MAX_PRESETS.computeIfAbsent(type, key -> createEffect(key, MAX_EFFECT_DURATION, MAX_EFFECT_AMPLIFIER));
+		return effect;
 	}
 
 	/**
@@ -84,15 +180,19 @@ public class PotionManager {
 	}
 
 	/**
-	 * Creates a potion effect with no defined color. This method call {@link #createEffect(PotionEffectType, int, int)} with duration
-	 * equals {@value #MIN_EFFECT_DURATION} and amplifier equals {@value #MIN_EFFECT_AMPLIFIER}
+	 * Get the potion effect with no defined color, a duration equals {@value #MIN_EFFECT_DURATION} and an amplifier equals
+	 * {@value #MIN_EFFECT_AMPLIFIER}. Since potion effects are immutable, the returned instance is shared.
 	 *
 	 * @param type effect type
 	 * 
 	 * @return The associated effect.
 	 */
 	public static PotionEffect createEffectMinDurationAndAmplifier(PotionEffectType type) {
-		return createEffect(type, MIN_EFFECT_DURATION, MIN_EFFECT_AMPLIFIER);
+		// Looking up by type first does not allocate once the effect has been created.
+		PotionEffect effect = MIN_PRESETS.get(type);
+		if (effect == null)
+			effect = MIN_PRESETS.computeIfAbsent(type, key -> createEffect(key, MIN_EFFECT_DURATION, MIN_EFFECT_AMPLIFIER));
+		return effect;
 	}
 
 	/**
@@ -150,10 +250,11 @@ public class PotionManager {
 	 * @param player The player that receive all effects.
 	 * @param types  An array that contains potion effect type used to create effect.
 	 * 
-	 * @see #giveEffects(Player, Stream)
+	 * @see #giveEffect(Player, PotionEffect)
 	 */
 	public static void giveEffectMaxDurationAndAmplifier(Player player, PotionEffectType... types) {
-		giveEffects(player, createEffectsMaxDurationAndAmplifier(types));
+		for (PotionEffectType type : types)
+			giveEffect(player, createEffectMaxDurationAndAmplifier(type));
 	}
 
 	/**
@@ -163,11 +264,12 @@ public class PotionManager {
 	 * @param player The player that receive all effects.
 	 * @param types  An array that contains potion effect type used to create effect.
 	 * 
-	 * @see #giveEffects(Player, Stream)
+	 * @see #giveEffect(Player, PotionEffect)
 	 * 
 	 */
 	public static void giveEffectMinDurationAndAmplifier(Player player, PotionEffectType... types) {
-		giveEffects(player, createEffectsMinDurationAndAmplifier(types));
+		for (PotionEffectType type : types)
+			giveEffect(player, createEffectMinDurationAndAmplifier(type));
 	}
 
 	/**
@@ -198,6 +300,43 @@ public class PotionManager {
 				giveEffect(p, e);
 	}
 
+	/**
+	 * Add to each player of the list all effects of the array. No intermediate collection is created.
+	 * 
+	 * @param players A list that contains all player to add effects.
+	 * @param effects An array that contains all effects to add to each player, typically shared presets.
+	 * 
+	 * @see #getPresets(int, int, PotionEffectType...)
+	 */
+	public static void giveEffects(List<Player> players, PotionEffect... effects) {
+		for (int i = 0; i < players.size(); i++)
+			giveEffects(players.get(i), effects);
+	}
+
+	/**
+	 * Add to each player present in the stream <code>players</code> all effects of the array.
+	 * 
+	 * @param players A stream that contains all player to add effects.
+	 * @param effects An array that contains all effects to add to each player.
+	 * 
+	 * @see #giveEffects(Player, PotionEffect...)
+	 */
+	public static void giveEffects(Stream<Player> players, PotionEffect... effects) {
+		players.forEach(p -> giveEffects(p, effects));
+	}
+
+	/**
+	 * Add to each player currently logged into the server all effects of the array.
+	 * 
+	 * @param effects An array that contains all effects to add to each player.
+	 * 
+	 * @see PlayerManager#getPlayersSnapshot()
+	 * @see #giveEffects(List, PotionEffect...)
+	 */
+	public static void giveEffectsToAllPlayers(PotionEffect... effects) {
+		giveEffects(PlayerManager.getPlayersSnapshot(), effects);
+	}
+
 	/**
 	 * Give the specified effect to each player with the specified game mode.
 	 * 
@@ -224,6 +363,176 @@ public class PotionManager {
 		giveEffects(PlayerManager.getPlayersOnMode(mode), effects);
 	}
 
+	/**
+	 * Compare the given effects. The active effect lasts long enough if its remaining duration is not lower than the requested
+	 * duration minus the tolerance. The tolerance cannot exceed a quarter of the requested duration, so that a short effect is
+	 * refreshed before it expires.
+	 * 
+	 * @param active    The effect currently active on a player.
+	 * @param effect    The requested effect.
+	 * @param tolerance The maximum number of ticks the active effect can be shorter than the requested effect.
+	 * 
+	 * @return True if both effects have the same type, amplifier and flags and if the active effect lasts long enough, false
+	 *         otherwise.
+	 */
+	public static boolean matches(PotionEffect active, PotionEffect effect, int tolerance) {
+		return active.getType().equals(effect.getType()) && active.getAmplifier() == effect.getAmplifier() && active.isAmbient() == effect.isAmbient()
+				&& active.hasParticles() == effect.hasParticles() && active.hasIcon() == effect.hasIcon()
+				&& active.getDuration() >= effect.getDuration() - Math.min(tolerance, effect.getDuration() / 4);
+	}
+
+	/**
+	 * Give the effect to the player only if the player does not already have a matching effect. If the player has an effect of the
+	 * same type that differs, it is replaced, even if it is stronger than the given effect. The active effect is only removed
+	 * first when the server would not merge the given effect into it, so that a refresh or an upgrade is sent in one update and does
+	 * not reset the extra hearts of effects such as health boost or absorption.
+	 * 
+	 * @param player    The player that receive the effect.
+	 * @param effect    The effect to give.
+	 * @param tolerance The maximum number of ticks the active effect can be shorter than the given effect to consider they match.
+	 * 
+	 * @return True if the effect of the player has been modified, false otherwise.
+	 * 
+	 * @see #matches(PotionEffect, PotionEffect, int)
+	 */
+	public static boolean updateEffect(Player player, PotionEffect effect, int tolerance) {
+		PotionEffect active = player.getPotionEffect(effect.getType());
+		if (active != null) {
+			if (matches(active, effect, tolerance))
+				return false;
+
+			// The server ignores an effect with a lower amplifier, or with the same amplifier and a duration that is not longer.
+			int amplifier = active.getAmplifier();
+			if (effect.getAmplifier() < amplifier || (effect.getAmplifier() == amplifier && effect.getDuration() <= active.getDuration()))
+				player.removePotionEffect(effect.getType());
+		}
+
+		player.addPotionEffect(effect);
+		return true;
+	}
+
+	/**
+	 * Call the method {@link #updateEffect(Player, PotionEffect, int)} with tolerance equals {@value #DURATION_TOLERANCE}.
+	 * 
+	 * @param player The player that receive the effect.
+	 * @param effect The effect to give.
+	 * 
+	 * @return True if the effect of the player has been modified, false otherwise.
+	 */
+	public static boolean updateEffect(Player player, PotionEffect effect) {
+		return updateEffect(player, effect, DURATION_TOLERANCE);
+	}
+
+	/**
+	 * Give each effect of the array to the player only if the player does not already have a matching effect.
+	 * 
+	 * @param player  The player that receive the effects.
+	 * @param effects An array that contains the effects to give.
+	 * 
+	 * @return The number of modified effects.
+	 * 
+	 * @see #updateEffect(Player, PotionEffect)
+	 */
+	public static int updateEffects(Player player, PotionEffect... effects) {
+		int modified = 0;
+		for (PotionEffect effect : effects)
+			if (updateEffect(player, effect))
+				modified++;
+		return modified;
+	}
+
+	/**
+	 * Give each effect of the array to each player of the stream only if the player does not already have a matching effect.
+	 * 
+	 * @param players A stream that contains all players that receive the effects.
+	 * @param effects An array that contains the effects to give.
+	 * 
+	 * @see #updateEffect(Player, PotionEffect)
+	 */
+	public static void updateEffects(Stream<Player> players, PotionEffect... effects) {
+		players.forEach(p -> updateEffects(p, effects));
+	}
+
+	/**
+	 * Give each effect of the array to each player with the specified game mode only if the player does not already have a matching
+	 * effect.
+	 * 
+	 * @param mode    The game mode used to filter the players currently logged into the server.
+	 * @param effects An array that contains the effects to give.
+	 * 
+	 * @see PlayerManager#getPlayersOnMode(GameMode)
+	 * @see #updateEffects(Stream, PotionEffect...)
+	 */
+	public static void updateEffectsToPlayersOnMode(GameMode mode, PotionEffect... effects) {
+		updateEffects(PlayerManager.getPlayersOnMode(mode), effects);
+	}
+
+	/**
+	 * Reconcile the active effects of the player with the given set of effects : active effects whose type is not in the set are
+	 * removed, effects of the set the player does not have or that differ are given.
+	 * 
+	 * @param player    The player whose the effects are reconciled.
+	 * @param effects   The complete set of effects the player should have, at most one effect per type.
+	 * @param tolerance The maximum number of ticks an active effect can be shorter than the requested effect to consider they
+	 *                  match.
+	 * 
+	 * @return The number of removed, added or replaced effects.
+	 * 
+	 * @see #matches(PotionEffect, PotionEffect, int)
+	 */
+	public static int reconcileEffects(Player player, Collection<PotionEffect> effects, int tolerance) {
+		int modified = 0;
+		for (PotionEffect active : player.getActivePotionEffects()) {
+			if (contains(effects, active.getType()))
+				continue;
+
+			player.removePotionEffect(active.getType());
+			modified++;
+		}
+
+		for (PotionEffect effect : effects)
+			if (updateEffect(player, effect, tolerance))
+				modified++;
+		return modified;
+	}
+
+	/**
+	 * Call the method {@link #reconcileEffects(Player, Collection, int)} with tolerance equals {@value #DURATION_TOLERANCE}.
+	 * 
+	 * @param player  The player whose the effects are reconciled.
+	 * @param effects The complete set of effects the player should have, at most one effect per type.
+	 * 
+	 * @return The number of removed, added or replaced effects.
+	 */
+	public static int reconcileEffects(Player player, Collection<PotionEffect> effects) {
+		return reconcileEffects(player, effects, DURATION_TOLERANCE);
+	}
+
+	/**
+	 * Call the method {@link #reconcileEffects(Player, Collection)} for the given array of effects.
+	 * 
+	 * @param player  The player whose the effects are reconciled.
+	 * @param effects The complete set of effects the player should have, at most one effect per type.
+	 * 
+	 * @return The number of removed, added or replaced effects.
+	 */
+	public static int reconcileEffects(Player player, PotionEffect... effects) {
+		return reconcileEffects(player, Arrays.asList(effects));
+	}
+
+	/**
+	 * Reconcile the active effects of each player of the stream with the given set of effects.
+	 * 
+	 * @param players A stream that contains all players whose the effects are reconciled.
+	 * @param effects The complete set of effects each player should have, at most one effect per type.
+	 * 
+	 * @see #reconcileEffects(Player, Collection)
+	 */
+	public static void reconcileEffects(Stream<Player> players, PotionEffect... effects) {
+		List<PotionEffect> list = Arrays.asList(effects);
+		players.forEach(p -> reconcileEffects(p, list));
+	}
+
 	/**
 	 * Removes any effects present of the given {@link PotionEffectType}.
 	 *
@@ -255,7 +564,21 @@ public class PotionManager {
 	 * @see #removeEffects(Stream, Stream)
 	 */
 	public static void removeEffect(Player player, PotionEffectType... types) {
-		removeEffect(player, Stream.of(types));
+		for (PotionEffectType type : types)
+			removeEffect(player, type);
+	}
+
+	/**
+	 * Removes any effects present of the given {@link PotionEffectType}.
+	 *
+	 * @param player The player used to remove the effects.
+	 * @param types  A collection that contains all potion effect type used to remove the associated effect.
+	 * 
+	 * @see #removeEffect(Player, PotionEffectType)
+	 */
+	public static void removeEffects(Player player, Collection<PotionEffectType> types) {
+		for (PotionEffectType type : types)
+			removeEffect(player, type);
 	}
 
 	/**
@@ -280,11 +603,63 @@ public class PotionManager {
 	 * @see #removeEffect(Player, PotionEffectType)
 	 */
 	public static void removeEffects(Stream<Player> players, Stream<PotionEffectType> types) {
-		List<Player> pl = players.collect(Collectors.toList());
+		// The types are iterated once per player, contrary to the players.
 		List<PotionEffectType> ty = types.collect(Collectors.toList());
-		for (Player p : pl)
-			for (PotionEffectType t : ty)
-				removeEffect(p, t);
+		players.forEach(p -> removeEffects(p, ty));
+	}
+
+	/**
+	 * Remove each effect associated to potion effect type present in the array <code>types</code> from each player present in the
+	 * stream <code>players</code>
+	 * 
+	 * @param players A stream that contains all player used to remove all effect.
+	 * @param types   An array that contains all potion type to remove from all player.
+	 * 
+	 * @see #removeEffect(Player, PotionEffectType)
+	 */
+	public static void removeEffects(Stream<Player> players, PotionEffectType... types) {
+		players.forEach(p -> removeEffect(p, types));
+	}
+
+	/**
+	 * Remove each effect associated to potion effect type present in the array <code>types</code> from each player of the list. No
+	 * intermediate collection is created.
+	 * 
+	 * @param players A list that contains all player used to remove all effect.
+	 * @param types   An array that contains all potion type to remove from all player.
+	 * 
+	 * @see #removeEffect(Player, PotionEffectType)
+	 */
+	public static void removeEffects(List<Player> players, PotionEffectType... types) {
+		for (int i = 0; i < players.size(); i++)
+			removeEffect(players.get(i), types);
+	}
+
+	/**
+	 * Remove each effect associated to potion effect type present in the collection <code>types</code> from each player of the list.
+	 * No intermediate collection is created.
+	 * 
+	 * @param players A list that contains all player used to remove all effect.
+	 * @param types   A collection that contains all potion type to remove from all player.
+	 * 
+	 * @see #removeEffect(Player, PotionEffectType)
+	 */
+	public static void removeEffects(List<Player> players, Collection<PotionEffectType> types) {
+		for (int i = 0; i < players.size(); i++)
+			removeEffects(players.get(i), types);
+	}
+
+	/**
+	 * Remove each effect associated to potion effect type present in the array <code>types</code> from each player currently logged
+	 * into the server.
+	 * 
+	 * @param types An array that contains all potion type to remove from all player.
+	 * 
+	 * @see PlayerManager#getPlayersSnapshot()
+	 * @see #removeEffects(List, PotionEffectType...)
+	 */
+	public static void removeEffectsToAllPlayers(PotionEffectType... types) {
+		removeEffects(PlayerManager.getPlayersSnapshot(), types);
 	}
 
 	/**
@@ -322,10 +697,10 @@ public class PotionManager {
 	 * @param types A stream that contains all potion effect type to remove from each player present in the previous stream.
 	 * 
 	 * @see PlayerManager#getPlayersOnMode(GameMode)
-	 * @see #removeEffectsToPlayerOnMode(Stream, Stream)
+	 * @see #removeEffects(Stream, PotionEffectType...)
 	 */
 	public static void removeEffectsToPlayerOnMode(GameMode mode, PotionEffectType... types) {
-		removeEffectsToPlayerOnMode(mode, Stream.of(types));
+		removeEffects(PlayerManager.getPlayersOnMode(mode), types);
 	}
 
 	/**
@@ -334,10 +709,11 @@ public class PotionManager {
 	 * @param player The player used to remove all effect.
 	 * 
 	 * @see Player#getActivePotionEffects()
-	 * @see #removeEffect(Player, PotionEffectType)
 	 */
 	public static void removeAllEffects(Player player) {
-		player.getActivePotionEffects().stream().forEach(e -> removeEffect(player, e.getType()));
+		// Only active effects are iterated, no need to check whether the player has them.
+		for (PotionEffect effect : player.getActivePotionEffects())
+			player.removePotionEffect(effect.getType());
 	}
 
 	/**
@@ -362,4 +738,65 @@ public class PotionManager {
 	public static void removeAllEffectsToPlayerOnMode(GameMode mode) {
 		removeAllEffects(PlayerManager.getPlayersOnMode(mode));
 	}
+
+	/**
+	 * Remove all active effect from each player currently logged into the server.
+	 * 
+	 * @see PlayerManager#getPlayersSnapshot()
+	 * @see #removeAllEffects(Player)
+	 */
+	public static void removeAllEffectsToAllPlayers() {
+		List<Player> players = PlayerManager.getPlayersSnapshot();
+		for (int i = 0; i < players.size(); i++)
+			removeAllEffects(players.get(i));
+	}
+
+	private static class Preset {
+		private PotionEffectType type;
+		private int duration, amplifier;
+		private boolean ambient, particles;
+		private int hash;
+
+		private Preset(PotionEffectType type, int duration, int amplifier, boolean ambient, boolean particles) {
+			this.type = type;
+			this.duration = duration;
+			this.amplifier = amplifier;
+			this.ambient = ambient;
+			this.particles = particles;
+
+			hash = type.hashCode();
+			hash = 31 * hash + duration;
+			hash = 31 * hash + amplifier;
+			hash = 31 * hash + (ambient ? 1 : 0);
+			hash = 31 * hash + (particles ? 1 : 0);
+		}
+
+		private PotionEffect create() {
+			return createEffect(type, duration, amplifier, ambient, particles);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (!(obj instanceof Preset))
+				return false;
+
+			Preset other = (Preset) obj;
+			return type.equals(other.type) && duration == other.duration && amplifier == other.amplifier && ambient == other.ambient
+					&& particles == other.particles;
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+
+	private static boolean contains(Collection<PotionEffect> effects, PotionEffectType type) {
+		for (PotionEffect effect : effects)
+			if (effect.getType().equals(type))
+				return true;
+		return false;
+	}
 }
@@ -0,0 +1,208 @@
+package fr.pederobien.minecraft.managers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.RandomAccess;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+public class RandomManager {
+	private static final Supplier<Random> THREAD_LOCAL = () -> ThreadLocalRandom.current();
+	private static volatile Supplier<Random> generator = THREAD_LOCAL;
+
+	/**
+	 * Get the generator used by the methods of this manager when no generator is specified. By default, this generator is the
+	 * {@link ThreadLocalRandom} of the calling thread so that asynchronous callers do not contend on a shared generator.
+	 *
+	 * @return The current random generator.
+	 */
+	public static Random getGenerator() {
+		return generator.get();
+	}
+
+	/**
+	 * Set the supplier of the generator used by the methods of this manager when no generator is specified.
+	 *
+	 * @param supplier The supplier of generator.
+	 */
+	public static void setGenerator(Supplier<Random> supplier) {
+		generator = supplier == null ? THREAD_LOCAL : supplier;
+	}
+
+	/**
+	 * Use a generator initialized with the given seed so that the sequence of random values is reproducible. This generator is shared
+	 * by all threads.
+	 *
+	 * @param seed The initial seed.
+	 */
+	public static void setSeed(long seed) {
+		Random random = new Random(seed);
+		setGenerator(() -> random);
+	}
+
+	/**
+	 * Use again the {@link ThreadLocalRandom} of the calling thread as generator.
+	 */
+	public static void resetGenerator() {
+		setGenerator(THREAD_LOCAL);
+	}
+
+	/**
+	 * Randomly permutes the given list in place using the Fisher-Yates algorithm.
+	 *
+	 * @param <T>    The type of element in the list.
+	 * @param list   The list to shuffle.
+	 * @param random The source of randomness.
+	 *
+	 * @return The given list.
+	 */
+	public static <T> List<T> shuffle(List<T> list, Random random) {
+		if (list instanceof RandomAccess) {
+			for (int i = list.size() - 1; i > 0; i--)
+				Collections.swap(list, i, random.nextInt(i + 1));
+		} else
+			Collections.shuffle(list, random);
+		return list;
+	}
+
+	/**
+	 * Randomly permutes the given list in place using the current generator.
+	 *
+	 * @param <T>  The type of element in the list.
+	 * @param list The list to shuffle.
+	 *
+	 * @return The given list.
+	 *
+	 * @see #shuffle(List, Random)
+	 */
+	public static <T> List<T> shuffle(List<T> list) {
+		return shuffle(list, getGenerator());
+	}
+
+	/**
+	 * Randomly permutes the given array in place using the Fisher-Yates algorithm.
+	 *
+	 * @param <T>    The type of element in the array.
+	 * @param array  The array to shuffle.
+	 * @param random The source of randomness.
+	 *
+	 * @return The given array.
+	 */
+	public static <T> T[] shuffle(T[] array, Random random) {
+		for (int i = array.length - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			T tmp = array[i];
+			array[i] = array[j];
+			array[j] = tmp;
+		}
+		return array;
+	}
+
+	/**
+	 * Randomly permutes the given array in place using the current generator.
+	 *
+	 * @param <T>   The type of element in the array.
+	 * @param array The array to shuffle.
+	 *
+	 * @return The given array.
+	 *
+	 * @see #shuffle(Object[], Random)
+	 */
+	public static <T> T[] shuffle(T[] array) {
+		return shuffle(array, getGenerator());
+	}
+
+	/**
+	 * Mix the original list randomly. The original list is not modified.
+	 *
+	 * @param <T>      The type of element in the list.
+	 * @param original The list to mix.
+	 * @param random   The source of randomness.
+	 *
+	 * @return A new list that contains the elements of the original list in a random order.
+	 */
+	public static <T> List<T> mix(List<T> original, Random random) {
+		return shuffle(new ArrayList<T>(original), random);
+	}
+
+	/**
+	 * Mix the original list randomly using the current generator. The original list is not modified.
+	 *
+	 * @param <T>      The type of element in the list.
+	 * @param original The list to mix.
+	 *
+	 * @return A new list that contains the elements of the original list in a random order.
+	 */
+	public static <T> List<T> mix(List<T> original) {
+		return mix(original, getGenerator());
+	}
+
+	/**
+	 * Get a random element from the specified list.
+	 *
+	 * @param <T>    The type of element in the list.
+	 * @param list   A list used to get a random element.
+	 * @param random The source of randomness.
+	 *
+	 * @return An optional that contains an element randomly chosen, an empty optional if the list is empty.
+	 */
+	public static <T> Optional<T> getRandom(List<T> list, Random random) {
+		return list.isEmpty() ? Optional.empty() : Optional.of(list.get(random.nextInt(list.size())));
+	}
+
+	/**
+	 * Get a random element from the specified list using the current generator.
+	 *
+	 * @param <T>  The type of element in the list.
+	 * @param list A list used to get a random element.
+	 *
+	 * @return An optional that contains an element randomly chosen, an empty optional if the list is empty.
+	 */
+	public static <T> Optional<T> getRandom(List<T> list) {
+		return getRandom(list, getGenerator());
+	}
+
+	/**
+	 * Get a random element among the elements that verify the given predicate. The elements are iterated only once using reservoir
+	 * sampling, no intermediate collection is created.
+	 *
+	 * @param <T>       The type of element.
+	 * @param elements  The elements used to get a random element.
+	 * @param predicate The condition an element has to verify to be chosen.
+	 * @param random    The source of randomness.
+	 *
+	 * @return An optional that contains an element randomly chosen, an empty optional if no element verifies the predicate.
+	 */
+	public static <T> Optional<T> getRandom(Iterable<T> elements, Predicate<? super T> predicate, Random random) {
+		T chosen = null;
+		int count = 0;
+		for (T element : elements) {
+			if (!predicate.test(element))
+				continue;
+
+			// The n-th matching element replaces the current one with a probability of 1/n.
+			if (random.nextInt(++count) == 0)
+				chosen = element;
+		}
+		return count == 0 ? Optional.empty() : Optional.ofNullable(chosen);
+	}
+
+	/**
+	 * Get a random element among the elements that verify the given predicate using the current generator.
+	 *
+	 * @param <T>       The type of element.
+	 * @param elements  The elements used to get a random element.
+	 * @param predicate The condition an element has to verify to be chosen.
+	 *
+	 * @return An optional that contains an element randomly chosen, an empty optional if no element verifies the predicate.
+	 *
+	 * @see #getRandom(Iterable, Predicate, Random)
+	 */
+	public static <T> Optional<T> getRandom(Iterable<T> elements, Predicate<? super T> predicate) {
+		return getRandom(elements, predicate, getGenerator());
+	}
+}
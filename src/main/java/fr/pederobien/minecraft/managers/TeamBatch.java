@@ -0,0 +1,300 @@
+package fr.pederobien.minecraft.managers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.stream.Stream;
+
+import org.bukkit.ChatColor;
+import org.bukkit.entity.Player;
+import org.bukkit.scoreboard.Scoreboard;
+import org.bukkit.scoreboard.Team;
+
+public class TeamBatch {
+	private List<Operation> operations;
+	private boolean isApplied;
+
+	protected TeamBatch() {
+		operations = new ArrayList<Operation>();
+		isApplied = false;
+	}
+
+	/**
+	 * Register a new team on the main scoreboard. If a team with the same name already exists, the operation is ignored.
+	 *
+	 * @param teamName The name of the team.
+	 * @param color    The team's color, or null to keep the default color.
+	 *
+	 * @return This batch.
+	 */
+	public TeamBatch create(String teamName, ChatColor color) {
+		return add(scoreboard -> {
+			if (scoreboard.getTeam(teamName) != null)
+				return false;
+
+			Team team = scoreboard.registerNewTeam(teamName);
+			if (color != null)
+				team.setColor(color);
+			TeamManager.getIndex().onColor(team, team.getColor());
+			return true;
+		});
+	}
+
+	/**
+	 * Register a new team on the main scoreboard. If a team with the same name already exists, the operation is ignored.
+	 *
+	 * @param teamName The name of the team.
+	 *
+	 * @return This batch.
+	 */
+	public TeamBatch create(String teamName) {
+		return create(teamName, null);
+	}
+
+	/**
+	 * Add the player to the given team. If the player was registered in another team, it leaves this team.
+	 *
+	 * @param team   The team that will receive the player.
+	 * @param player The player to add to the team.
+	 *
+	 * @return This batch.
+	 */
+	public TeamBatch join(Team team, Player player) {
+		return add(scoreboard -> {
+			team.addEntry(player.getName());
+			TeamManager.getIndex().onJoin(team, player);
+			return true;
+		});
+	}
+
+	/**
+	 * Add each player from the stream to the given team.
+	 *
+	 * @param team    The team that will receive the players.
+	 * @param players The players to add to the team.
+	 *
+	 * @return This batch.
+	 */
+	public TeamBatch join(Team team, Stream<Player> players) {
+		players.forEach(player -> join(team, player));
+		return this;
+	}
+
+	/**
+	 * Add the player to the team associated to the given name. The team is resolved when this batch is applied, so it can be created
+	 * by a previous operation of this batch. If no team is associated to this name, the operation is ignored.
+	 *
+	 * @param teamName The name of the team that will receive the player.
+	 * @param player   The player to add to the team.
+	 *
+	 * @return This batch.
+	 */
+	public TeamBatch join(String teamName, Player player) {
+		return add(scoreboard -> {
+			Team team = scoreboard.getTeam(teamName);
+			if (team == null)
+				return false;
+
+			team.addEntry(player.getName());
+			TeamManager.getIndex().onJoin(team, player);
+			return true;
+		});
+	}
+
+	/**
+	 * Remove the player from its team. If the player is not registered in a team, the operation is ignored.
+	 *
+	 * @param player The player to remove.
+	 *
+	 * @return This batch.
+	 */
+	public TeamBatch leave(Player player) {
+		return add(scoreboard -> {
+			Team team = scoreboard.getEntryTeam(player.getName());
+			return team != null && leave(team, player.getName(), player);
+		});
+	}
+
+	/**
+	 * Remove the player from the given team. If the player is not registered in this team, the operation is ignored.
+	 *
+	 * @param team   The team to modify.
+	 * @param player The player to remove.
+	 *
+	 * @return This batch.
+	 */
+	public TeamBatch leave(Team team, Player player) {
+		return add(scoreboard -> leave(team, player.getName(), player));
+	}
+
+	/**
+	 * Remove each player from the stream from the given team.
+	 *
+	 * @param team    The team to modify.
+	 * @param players The players to remove.
+	 *
+	 * @return This batch.
+	 */
+	public TeamBatch leave(Team team, Stream<Player> players) {
+		players.forEach(player -> leave(team, player));
+		return this;
+	}
+
+	/**
+	 * Remove each player currently logged into the server from the given team. Entries of offline players are kept.
+	 *
+	 * @param team The team to clear.
+	 *
+	 * @return This batch.
+	 */
+	public TeamBatch clear(Team team) {
+		return add(scoreboard -> {
+			boolean modified = false;
+			for (String entry : team.getEntries()) {
+				Player player = PlayerManager.getPlayer(entry);
+				if (player != null)
+					modified |= leave(team, entry, player);
+			}
+			return modified;
+		});
+	}
+
+	/**
+	 * Unregister the given team from the main scoreboard. If the team is no more registered, the operation is ignored.
+	 *
+	 * @param team The team to remove.
+	 *
+	 * @return This batch.
+	 */
+	public TeamBatch remove(Team team) {
+		return add(scoreboard -> {
+			// The name of a team already unregistered cannot be read anymore.
+			if (!scoreboard.getTeams().contains(team))
+				return false;
+
+			team.unregister();
+			TeamManager.getIndex().onRemove(team);
+			return true;
+		});
+	}
+
+	/**
+	 * Unregister the team associated to the given name from the main scoreboard. If no team is associated to this name, the operation
+	 * is ignored.
+	 *
+	 * @param teamName The name of the team to remove.
+	 *
+	 * @return This batch.
+	 */
+	public TeamBatch remove(String teamName) {
+		return add(scoreboard -> {
+			Team team = scoreboard.getTeam(teamName);
+			if (team == null)
+				return false;
+
+			team.unregister();
+			TeamManager.getIndex().onRemove(team);
+			return true;
+		});
+	}
+
+	/**
+	 * @return The number of operations registered in this batch.
+	 */
+	public int size() {
+		return operations.size();
+	}
+
+	/**
+	 * Apply each operation of this batch, in the order they have been registered, on the main scoreboard. A batch can only be applied
+	 * once.
+	 *
+	 * @return The result of this batch.
+	 *
+	 * @throws IllegalStateException if this batch has already been applied.
+	 */
+	public BatchResult apply() {
+		if (isApplied)
+			throw new IllegalStateException("This batch has already been applied");
+		isApplied = true;
+
+		long start = System.nanoTime();
+		Scoreboard scoreboard = BukkitManager.getScoreboardManager().getMainScoreboard();
+		int applied = 0;
+		for (Operation operation : operations)
+			if (operation.apply(scoreboard))
+				applied++;
+
+		if (applied > 0)
+			TeamManager.onModified();
+		return new BatchResult(operations.size(), applied, System.nanoTime() - start);
+	}
+
+	private TeamBatch add(Operation operation) {
+		if (isApplied)
+			throw new IllegalStateException("This batch has already been applied");
+		operations.add(operation);
+		return this;
+	}
+
+	private boolean leave(Team team, String entry, Player player) {
+		if (!team.removeEntry(entry))
+			return false;
+
+		if (player != null)
+			TeamManager.getIndex().onLeave(player);
+		return true;
+	}
+
+	private interface Operation {
+
+		/**
+		 * Apply this operation on the given scoreboard.
+		 *
+		 * @param scoreboard The scoreboard to modify.
+		 * @return True if the scoreboard has been modified, false if the operation has been ignored.
+		 */
+		boolean apply(Scoreboard scoreboard);
+	}
+
+	public static class BatchResult {
+		private int registered, applied;
+		private long time;
+
+		private BatchResult(int registered, int applied, long time) {
+			this.registered = registered;
+			this.applied = applied;
+			this.time = time;
+		}
+
+		/**
+		 * @return The number of operations registered in the batch.
+		 */
+		public int getRegistered() {
+			return registered;
+		}
+
+		/**
+		 * @return The number of operations that modified the scoreboard, ignored operations are not counted.
+		 */
+		public int getApplied() {
+			return applied;
+		}
+
+		/**
+		 * @return The time, in nanoseconds, spent to apply the batch.
+		 */
+		public long getTime() {
+			return time;
+		}
+
+		@Override
+		public String toString() {
+			StringJoiner joiner = new StringJoiner(", ", "{", "}");
+			joiner.add("registered:" + registered);
+			joiner.add("applied:" + applied);
+			joiner.add("time:" + time + "ns");
+			return joiner.toString();
+		}
+	}
+}
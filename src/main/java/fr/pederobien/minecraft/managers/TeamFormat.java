@@ -0,0 +1,84 @@
+package fr.pederobien.minecraft.managers;
+
+import org.bukkit.ChatColor;
+import org.bukkit.scoreboard.Team;
+
+public class TeamFormat {
+	/**
+	 * The format of players that are not registered in a team.
+	 */
+	public static final TeamFormat NONE = new TeamFormat(ChatColor.RESET, "");
+
+	private ChatColor color;
+	private String prefix, suffix, tag;
+
+	private TeamFormat(ChatColor color, String displayName) {
+		this.color = color;
+		prefix = color.toString();
+		suffix = ChatColor.RESET.toString();
+		tag = displayName.isEmpty() ? "" : prefix + displayName + suffix;
+	}
+
+	/**
+	 * Create the format associated to the given team.
+	 *
+	 * @param team The team used to render the prefix, the suffix and the tag.
+	 *
+	 * @return The format of the team, {@link #NONE} if the team is null.
+	 */
+	public static TeamFormat of(Team team) {
+		return team == null ? NONE : new TeamFormat(team.getColor(), team.getDisplayName());
+	}
+
+	/**
+	 * @return The color of the team.
+	 */
+	public ChatColor getColor() {
+		return color;
+	}
+
+	/**
+	 * @return The pre-rendered color code of the team.
+	 */
+	public String getPrefix() {
+		return prefix;
+	}
+
+	/**
+	 * @return The pre-rendered color code to use after a text rendered in the color of the team.
+	 */
+	public String getSuffix() {
+		return suffix;
+	}
+
+	/**
+	 * @return The display name of the team rendered in the color of the team, an empty string if the player is not in a team.
+	 */
+	public String getTag() {
+		return tag;
+	}
+
+	/**
+	 * Render the given text in the color of the team. It is equivalent to {@link EColor#getInColor(String)} with the EColor associated
+	 * to the color of the team.
+	 *
+	 * @param text The text to render.
+	 *
+	 * @return The text between the prefix and the suffix.
+	 */
+	public String format(String text) {
+		return prefix.concat(text).concat(suffix);
+	}
+
+	/**
+	 * Append the given text, rendered in the color of the team, to the given builder.
+	 *
+	 * @param builder The builder to append to.
+	 * @param text    The text to render.
+	 *
+	 * @return The given builder.
+	 */
+	public StringBuilder appendTo(StringBuilder builder, String text) {
+		return builder.append(prefix).append(text).append(suffix);
+	}
+}
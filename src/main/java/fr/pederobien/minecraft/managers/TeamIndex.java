@@ -0,0 +1,464 @@
+package fr.pederobien.minecraft.managers;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
+
+import org.bukkit.ChatColor;
+import org.bukkit.GameMode;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.player.PlayerGameModeChangeEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.scoreboard.Scoreboard;
+import org.bukkit.scoreboard.Team;
+
+public class TeamIndex extends EventListener {
+	private Map<UUID, Team> teams;
+	private Map<UUID, Player> members;
+	private Map<ChatColor, Team> colors;
+	private Map<UUID, GameMode> modes;
+	private Map<Team, int[]> counts;
+	private Map<UUID, TeamFormat> formats;
+	private Map<Team, TeamFormat> teamFormats;
+	private List<BiConsumer<Team, GameMode>> eliminationListeners;
+	private volatile boolean isBuilt;
+	private boolean isVerifying;
+	private int drifts;
+
+	protected TeamIndex() {
+		teams = new ConcurrentHashMap<UUID, Team>();
+		members = new ConcurrentHashMap<UUID, Player>();
+		colors = new EnumMap<ChatColor, Team>(ChatColor.class);
+		modes = new ConcurrentHashMap<UUID, GameMode>();
+		counts = new ConcurrentHashMap<Team, int[]>();
+		formats = new ConcurrentHashMap<UUID, TeamFormat>();
+		teamFormats = new ConcurrentHashMap<Team, TeamFormat>();
+		eliminationListeners = new CopyOnWriteArrayList<BiConsumer<Team, GameMode>>();
+		isBuilt = false;
+		isVerifying = false;
+		setActivated(true);
+	}
+
+	/**
+	 * The index is only used by the {@link TeamManager} when it is registered on the server, activated and built. Otherwise it cannot
+	 * be notified when players join or leave the server and team lookups fall back on the main scoreboard. The index is built on the
+	 * main thread when it is registered and each time it is activated again.
+	 *
+	 * @return True if this index is registered, activated and built, false otherwise.
+	 */
+	public boolean isAvailable() {
+		return isRegistered() && isActivated() && isBuilt;
+	}
+
+	@Override
+	public void setActivated(boolean isActivated) {
+		super.setActivated(isActivated);
+
+		// Team changes made while deactivated are not tracked, the index is emptied and read again from the main scoreboard.
+		if (!isActivated)
+			clear();
+		else if (isRegistered() && !isBuilt)
+			rebuild();
+	}
+
+	/**
+	 * In verification mode, each lookup compares the indexed team with the team registered on the main scoreboard. If they differ,
+	 * the index is repaired and the drift counter is incremented.
+	 *
+	 * @param isVerifying True if lookups should be checked against the main scoreboard, false otherwise.
+	 */
+	public void setVerifying(boolean isVerifying) {
+		this.isVerifying = isVerifying;
+	}
+
+	/**
+	 * @return True if lookups are checked against the main scoreboard, false otherwise.
+	 */
+	public boolean isVerifying() {
+		return isVerifying;
+	}
+
+	/**
+	 * @return The number of entries that have been found different from the main scoreboard since the index has been created.
+	 */
+	public int getDrifts() {
+		return drifts;
+	}
+
+	/**
+	 * Register a listener notified when the number of players of a team, logged into the server, with a game mode reaches zero. For
+	 * example when the last player of a team in survival mode switches to spectator mode or leaves the server. The listener is not
+	 * notified when a team is removed.
+	 *
+	 * @param listener The listener to register.
+	 */
+	public void addEliminationListener(BiConsumer<Team, GameMode> listener) {
+		eliminationListeners.add(listener);
+	}
+
+	/**
+	 * Unregister the given elimination listener.
+	 *
+	 * @param listener The listener to unregister.
+	 */
+	public void removeEliminationListener(BiConsumer<Team, GameMode> listener) {
+		eliminationListeners.remove(listener);
+	}
+
+	/**
+	 * Compare the team of each player currently logged into the server with the team registered on the main scoreboard. Each entry
+	 * that differs is repaired.
+	 *
+	 * @return The number of entries that were different from the main scoreboard.
+	 */
+	public int verify() {
+		if (!isBuilt)
+			return 0;
+
+		int found = 0;
+		for (Player player : BukkitManager.getOnlinePlayers())
+			if (repair(player, teams.get(player.getUniqueId())))
+				found++;
+
+		// Entries of players that are no more logged into the server.
+		for (UUID uuid : teams.keySet())
+			if (PlayerManager.getPlayer(uuid) == null && remove(uuid))
+				found++;
+
+		drifts += found;
+		return found;
+	}
+
+	/**
+	 * Clear this index and fill it again from the main scoreboard. This method must be called from the main thread.
+	 */
+	public void rebuild() {
+		clear();
+		Scoreboard scoreboard = getMainScoreboard();
+		for (Team team : scoreboard.getTeams())
+			colors.putIfAbsent(team.getColor(), team);
+
+		for (Player player : BukkitManager.getOnlinePlayers()) {
+			Team team = scoreboard.getEntryTeam(player.getName());
+			if (team != null)
+				put(player, team);
+		}
+		isBuilt = true;
+	}
+
+	/**
+	 * Get the team in which the given player is registered.
+	 *
+	 * @param player The player used to get its team.
+	 * @return The team of the player if registered in a team, null otherwise or if this index is not built and this method is not
+	 *         called from the main thread.
+	 */
+	public Team getTeam(Player player) {
+		if (!build())
+			return null;
+
+		Team team = teams.get(player.getUniqueId());
+		if (isVerifying && repair(player, team)) {
+			drifts++;
+			team = teams.get(player.getUniqueId());
+		}
+		return team;
+	}
+
+	/**
+	 * Get the team associated to the given color. If several teams have the same color, the first registered team is returned.
+	 *
+	 * @param color The color associated to the team.
+	 * @return The team associated to the color if it exists, null otherwise.
+	 */
+	public Team getTeam(ChatColor color) {
+		return build() ? colors.get(color) : null;
+	}
+
+	/**
+	 * Get the pre-rendered format of the given player. This format is computed once when the player joins a team, and computed again
+	 * only when the color or the display name of the team changes. Once this index is built, this method can be called from the
+	 * asynchronous chat thread, this index is never built from another thread than the main thread.
+	 *
+	 * @param player The player used to get its format.
+	 * @return The format of the team of the player, {@link TeamFormat#NONE} if the player is not registered in a team or if this
+	 *         index is not built and this method is not called from the main thread.
+	 */
+	public TeamFormat getFormat(Player player) {
+		if (!build())
+			return TeamFormat.NONE;
+
+		TeamFormat format = formats.get(player.getUniqueId());
+		return format == null ? TeamFormat.NONE : format;
+	}
+
+	/**
+	 * Get the number of players of the given team, logged into the server, who have the specified game mode.
+	 *
+	 * @param team The team used to get its players.
+	 * @param mode The game mode of the players to count.
+	 * @return The number of players of the team with the game mode.
+	 */
+	public int getNumberOfPlayers(Team team, GameMode mode) {
+		if (!build())
+			return 0;
+
+		int[] count = counts.get(team);
+		return count == null ? 0 : count[mode.ordinal()];
+	}
+
+	/**
+	 * Get the number of players of the given team logged into the server.
+	 *
+	 * @param team The team used to get its players.
+	 * @return The number of players of the team.
+	 */
+	public int getNumberOfPlayers(Team team) {
+		if (!build())
+			return 0;
+
+		int[] count = counts.get(team);
+		if (count == null)
+			return 0;
+
+		int number = 0;
+		for (int value : count)
+			number += value;
+		return number;
+	}
+
+	/**
+	 * Get a snapshot of the players currently logged into the server and registered in a team. The array is built in one pass over
+	 * this index.
+	 *
+	 * @return An array that contains all players registered in a team.
+	 */
+	public Player[] getMembers() {
+		return build() ? members.values().toArray(new Player[0]) : new Player[0];
+	}
+
+	/**
+	 * @return The number of players currently logged into the server and registered in a team.
+	 */
+	public int size() {
+		return build() ? members.size() : 0;
+	}
+
+	/**
+	 * Notify this index the given player has joined the specified team.
+	 *
+	 * @param team   The team the player has joined.
+	 * @param player The player that joined the team.
+	 */
+	protected void onJoin(Team team, Player player) {
+		if (isBuilt)
+			put(player, team);
+	}
+
+	/**
+	 * Notify this index the given player has left its team.
+	 *
+	 * @param player The player that left its team.
+	 */
+	protected void onLeave(Player player) {
+		remove(player.getUniqueId());
+	}
+
+	/**
+	 * Notify this index the color of the given team has changed. This method should also be called when a team is created.
+	 *
+	 * @param team  The modified team.
+	 * @param color The new color of the team.
+	 */
+	protected void onColor(Team team, ChatColor color) {
+		if (!isBuilt)
+			return;
+
+		removeColor(team);
+		colors.putIfAbsent(color, team);
+		onFormat(team);
+	}
+
+	/**
+	 * Notify this index the display name of the given team has changed.
+	 *
+	 * @param team The modified team.
+	 */
+	protected void onDisplayName(Team team) {
+		if (isBuilt)
+			onFormat(team);
+	}
+
+	/**
+	 * Notify this index the given team has been unregistered from the main scoreboard.
+	 *
+	 * @param team The removed team.
+	 */
+	protected void onRemove(Team team) {
+		// Removing the counters first, a removed team is not an eliminated team.
+		counts.remove(team);
+		teamFormats.remove(team);
+		for (Map.Entry<UUID, Team> entry : teams.entrySet())
+			if (entry.getValue().equals(team))
+				remove(entry.getKey());
+
+		if (isBuilt)
+			removeColor(team);
+	}
+
+	@Override
+	protected void onRegister() {
+		if (isActivated())
+			rebuild();
+	}
+
+	@EventHandler(priority = EventPriority.LOWEST)
+	public void onPlayerJoin(PlayerJoinEvent event) {
+		if (!isActivated() || !isBuilt)
+			return;
+
+		Team team = getMainScoreboard().getEntryTeam(event.getPlayer().getName());
+		if (team == null)
+			return;
+
+		put(event.getPlayer(), team);
+		TeamManager.onModified();
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR)
+	public void onPlayerQuit(PlayerQuitEvent event) {
+		if (!isActivated())
+			return;
+
+		if (remove(event.getPlayer().getUniqueId()))
+			TeamManager.onQuit(event.getPlayer());
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public void onPlayerGameModeChange(PlayerGameModeChangeEvent event) {
+		if (!isActivated() || !isBuilt)
+			return;
+
+		UUID uuid = event.getPlayer().getUniqueId();
+		Team team = teams.get(uuid);
+		if (team == null)
+			return;
+
+		GameMode old = modes.put(uuid, event.getNewGameMode());
+		increment(team, event.getNewGameMode());
+		decrement(team, old);
+		TeamManager.onModified();
+	}
+
+	private boolean repair(Player player, Team indexed) {
+		Team team = getMainScoreboard().getEntryTeam(player.getName());
+		if (team == null ? indexed == null : team.equals(indexed))
+			return false;
+
+		if (team == null)
+			remove(player.getUniqueId());
+		else
+			put(player, team);
+		return true;
+	}
+
+	private void put(Player player, Team team) {
+		UUID uuid = player.getUniqueId();
+		GameMode mode = player.getGameMode();
+		Team previous = teams.put(uuid, team);
+		GameMode previousMode = modes.put(uuid, mode);
+		members.put(uuid, player);
+		formats.put(uuid, teamFormats.computeIfAbsent(team, key -> TeamFormat.of(key)));
+
+		// Incrementing first so that moving a player into its own team does not eliminate the team.
+		increment(team, mode);
+		if (previous != null)
+			decrement(previous, previousMode);
+	}
+
+	private boolean remove(UUID uuid) {
+		members.remove(uuid);
+		formats.remove(uuid);
+		GameMode mode = modes.remove(uuid);
+		Team team = teams.remove(uuid);
+		if (team == null)
+			return false;
+
+		decrement(team, mode);
+		return true;
+	}
+
+	private void onFormat(Team team) {
+		TeamFormat format = TeamFormat.of(team);
+		teamFormats.put(team, format);
+		for (Map.Entry<UUID, Team> entry : teams.entrySet())
+			if (entry.getValue().equals(team))
+				formats.put(entry.getKey(), format);
+	}
+
+	private void increment(Team team, GameMode mode) {
+		counts.computeIfAbsent(team, key -> new int[GameMode.values().length])[mode.ordinal()]++;
+	}
+
+	private void decrement(Team team, GameMode mode) {
+		int[] count = counts.get(team);
+		if (count == null || mode == null || count[mode.ordinal()] == 0)
+			return;
+
+		if (--count[mode.ordinal()] == 0)
+			for (BiConsumer<Team, GameMode> listener : eliminationListeners)
+				listener.accept(team, mode);
+	}
+
+	private void removeColor(Team team) {
+		ChatColor color = null;
+		for (Map.Entry<ChatColor, Team> entry : colors.entrySet())
+			if (entry.getValue().equals(team))
+				color = entry.getKey();
+
+		if (color == null)
+			return;
+
+		// Another team may have the same color.
+		colors.remove(color);
+		for (Team other : getMainScoreboard().getTeams())
+			if (!other.equals(team) && other.getColor() == color) {
+				colors.put(color, other);
+				break;
+			}
+	}
+
+	private void clear() {
+		teams.clear();
+		members.clear();
+		colors.clear();
+		modes.clear();
+		counts.clear();
+		formats.clear();
+		teamFormats.clear();
+		isBuilt = false;
+	}
+
+	/**
+	 * Build this index if it has not been built yet. The index is never built from another thread than the main thread, since the
+	 * main scoreboard cannot be read safely from it.
+	 *
+	 * @return True if this index is built, false otherwise.
+	 */
+	private boolean build() {
+		if (!isBuilt && BukkitManager.isPrimaryThread())
+			rebuild();
+		return isBuilt;
+	}
+
+	private Scoreboard getMainScoreboard() {
+		return BukkitManager.getScoreboardManager().getMainScoreboard();
+	}
+}
@@ -1,6 +1,7 @@
 package fr.pederobien.minecraft.managers;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 import java.util.Random;
@@ -8,7 +9,6 @@ import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
-import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.GameMode;
 import org.bukkit.entity.Player;
@@ -16,7 +16,92 @@ import org.bukkit.scoreboard.Scoreboard;
 import org.bukkit.scoreboard.Team;
 
 public class TeamManager {
-	private static final Random RANDOM = new Random();
+	private static final TeamIndex INDEX = new TeamIndex();
+	private static volatile TeamSnapshot snapshot = TeamSnapshot.EMPTY;
+	private static volatile boolean isPublishing = false;
+
+	/**
+	 * Get the index that associates each player currently logged into the server to its team. Once registered on the server, this
+	 * index is used by this manager to get the team of a player without iterating over each team of the main scoreboard.
+	 * 
+	 * @return The player to team index.
+	 */
+	public static TeamIndex getIndex() {
+		return INDEX;
+	}
+
+	/**
+	 * When enabled, an immutable snapshot of the teams is published after each modification of a team done through this manager or a
+	 * {@link TeamBatch}. This snapshot can be read from any thread.
+	 * 
+	 * @param isPublishing True to publish a snapshot after each modification, false otherwise.
+	 * 
+	 * @see #getSnapshot()
+	 */
+	public static void setPublishing(boolean isPublishing) {
+		TeamManager.isPublishing = isPublishing;
+		if (isPublishing)
+			publishSnapshot();
+	}
+
+	/**
+	 * @return True if a snapshot of the teams is published after each modification, false otherwise.
+	 */
+	public static boolean isPublishing() {
+		return isPublishing;
+	}
+
+	/**
+	 * Get the last published snapshot of the teams. Contrary to the other methods of this manager, this method can be called from any
+	 * thread. If no snapshot has been published yet, {@link TeamSnapshot#EMPTY} is returned.
+	 * 
+	 * @return The last published snapshot.
+	 * 
+	 * @see #setPublishing(boolean)
+	 */
+	public static TeamSnapshot getSnapshot() {
+		return snapshot;
+	}
+
+	/**
+	 * Create a new snapshot of the teams registered on the main scoreboard and publish it. This method must be called from the main
+	 * thread. It is automatically called after each modification when publishing is enabled, but it can be called after teams have
+	 * been modified without using this manager.
+	 * 
+	 * @return The published snapshot.
+	 */
+	public static TeamSnapshot publishSnapshot() {
+		return snapshot = TeamSnapshot.create(snapshot.getVersion() + 1, null);
+	}
+
+	/**
+	 * Notify this manager the teams have been modified.
+	 */
+	protected static void onModified() {
+		if (isPublishing)
+			publishSnapshot();
+	}
+
+	/**
+	 * Notify this manager the given player is leaving the server. The player is still returned by the server while the quit event is
+	 * dispatched, it is excluded from the published snapshot.
+	 *
+	 * @param player The player leaving the server.
+	 */
+	protected static void onQuit(Player player) {
+		if (isPublishing)
+			snapshot = TeamSnapshot.create(snapshot.getVersion() + 1, player);
+	}
+
+	/**
+	 * Create a new batch in which team mutations (creations, joins, leaves, removals) are collected in order to be applied in one pass
+	 * directly on the main scoreboard.
+	 * 
+	 * @return A new empty batch.
+	 */
+	public static TeamBatch createBatch() {
+		return new TeamBatch();
+	}
 
 	/**
 	 * Create a team on the server.
@@ -24,8 +109,9 @@ public class TeamManager {
 	 * @param teamName The name of the team.
 	 */
 	public static Team createTeam(String teamName) {
-		return getMainScoreboard().registerNewTeam(teamName);
-
+		Team team = registerTeam(teamName, null);
+		onModified();
+		return team;
 	}
 
 	/**
@@ -36,9 +122,8 @@ public class TeamManager {
 	 * @return The created team.
 	 */
 	public static Team createTeam(String teamName, ChatColor color) {
-		Team team = createTeam(teamName);
-		if (team != null)
-			team.setColor(color);
+		Team team = registerTeam(teamName, color);
+		onModified();
 		return team;
 	}
 
@@ -51,12 +136,11 @@ public class TeamManager {
 	 * @return The created team.
 	 */
 	public static Team createTeam(String teamName, ChatColor color, Stream<Player> players) {
-		Team team = createTeam(teamName);
-		if (team == null)
-			return null;
+		Team team = registerTeam(teamName, color);
 
-		team.setColor(color);
-		players.forEach(player -> team.addEntry(player.getName()));
+		// The batch publishes the snapshot only if at least one player joined the team.
+		if (createBatch().join(team, players).apply().getApplied() == 0)
+			onModified();
 		return team;
 	}
 
@@ -66,7 +150,7 @@ public class TeamManager {
 	 * @param teamName The team'name to remove.
 	 */
 	public static void removeTeam(String teamName) {
-		BukkitManager.dispatchCommand("team remove " + teamName);
+		createBatch().remove(teamName).apply();
 	}
 
 	/**
@@ -135,7 +219,7 @@ public class TeamManager {
 	public static Stream<Player> getPlayers(Team team) {
 		List<Player> players = new ArrayList<Player>();
 		for (String pl : team.getEntries()) {
-			Player player = Bukkit.getPlayer(pl);
+			Player player = PlayerManager.getPlayer(pl);
 			if (player != null)
 				players.add(player);
 		}
@@ -149,7 +233,7 @@ public class TeamManager {
 	 * @return An optional that contains the team associated with the name if it exist, an empty optional otherwise.
 	 */
 	public static Optional<Team> getTeam(String name) {
-		return getTeams().filter(t -> t.getName().equals(name)).findFirst();
+		return Optional.ofNullable(getMainScoreboard().getTeam(name));
 	}
 
 	/**
@@ -159,6 +243,8 @@ public class TeamManager {
 	 * @return An optional that contains the team associated with the color if it exist, an empty optional otherwise.
 	 */
 	public static Optional<Team> getTeam(ChatColor color) {
+		if (INDEX.isAvailable())
+			return Optional.ofNullable(INDEX.getTeam(color));
 		return getTeams().filter(t -> t.getColor().equals(color)).findFirst();
 	}
 
@@ -169,6 +255,8 @@ public class TeamManager {
 	 * @return An optional that contains the team in which the player is registered, an empty Optional otherwise.
 	 */
 	public static Optional<Team> getTeam(Player player) {
+		if (INDEX.isAvailable())
+			return Optional.ofNullable(INDEX.getTeam(player));
 		return getTeams().filter(t -> getPlayers(t).collect(Collectors.toList()).contains(player)).findFirst();
 	}
 
@@ -180,10 +268,30 @@ public class TeamManager {
 	 * @return {@link ChatColor#RESET} if the player is not registered into a team, the team color otherwise.
 	 */
 	public static ChatColor getColor(Player player) {
+		if (INDEX.isAvailable())
+			return INDEX.getFormat(player).getColor();
+
 		Optional<Team> team = getTeam(player);
 		return team.isPresent() ? team.get().getColor() : ChatColor.RESET;
 	}
 
+	/**
+	 * Get the format associated to the team of the given player. This format contains the pre-rendered color codes to use in chat or
+	 * in the tab list. When the team index is available, this method does not allocate anything and can be called from the
+	 * asynchronous chat thread. Otherwise the main scoreboard is only read from the main thread.
+	 * 
+	 * @param player The player used to get the format of its team.
+	 * @return The format of the team, {@link TeamFormat#NONE} if the player is not registered in a team or if the team index is not
+	 *         available and this method is not called from the main thread.
+	 */
+	public static TeamFormat getFormat(Player player) {
+		if (INDEX.isAvailable())
+			return INDEX.getFormat(player);
+		if (!BukkitManager.isPrimaryThread())
+			return TeamFormat.NONE;
+		return TeamFormat.of(getTeam(player).orElse(null));
+	}
+
 	/**
 	 * Return the number of player registered into the given team.
 	 * 
@@ -191,14 +299,36 @@ public class TeamManager {
 	 * @return The number of player registered in the given team.
 	 */
 	public static int getNumberOfPlayers(Team team) {
+		if (INDEX.isAvailable())
+			return INDEX.getNumberOfPlayers(team);
 		return (int) getPlayers(team).count();
 	}
 
 	/**
-	 * @return An optional that contains all registered players in a team.
+	 * @return A stream that contains all registered players in a team.
+	 * 
+	 * @see #getPlayersInTeamSnapshot()
 	 */
 	public static Stream<Player> getPlayersInTeam() {
-		return getTeams().map(t -> getPlayers(t)).reduce(Stream.of(), (players, playersTeam) -> Stream.concat(players, playersTeam));
+		return Arrays.stream(getPlayersInTeamSnapshot());
+	}
+
+	/**
+	 * Get an array that contains all players currently logged into the server and registered in a team. This array is built in one
+	 * pass over the team index if it is available, over the players logged into the server otherwise.
+	 * 
+	 * @return An array that contains all registered players in a team.
+	 */
+	public static Player[] getPlayersInTeamSnapshot() {
+		if (INDEX.isAvailable())
+			return INDEX.getMembers();
+
+		Scoreboard scoreboard = getMainScoreboard();
+		List<Player> players = new ArrayList<Player>();
+		for (Player player : BukkitManager.getOnlinePlayers())
+			if (scoreboard.getEntryTeam(player.getName()) != null)
+				players.add(player);
+		return players.toArray(new Player[players.size()]);
 	}
 
 	/**
@@ -207,7 +337,7 @@ public class TeamManager {
 	 * @see #getPlayersInTeam()
 	 */
 	public static int getNumberOfPlayerInTeam() {
-		return (int) getPlayersInTeam().count();
+		return INDEX.isAvailable() ? INDEX.size() : getPlayersInTeamSnapshot().length;
 	}
 
 	/**
@@ -319,6 +449,8 @@ public class TeamManager {
 	 * @return The number of player from the team who have the specified game mode.
 	 */
 	public static int getNumberTeamPlayersOnMode(Team team, GameMode mode) {
+		if (INDEX.isAvailable())
+			return INDEX.getNumberOfPlayers(team, mode);
 		return (int) getPlayersOnModeInTeam(team, mode).count();
 	}
 
@@ -329,7 +461,7 @@ public class TeamManager {
 	 * @param player The player to add to the team.
 	 */
 	public static void addPlayerToTeam(Team team, Player player) {
-		BukkitManager.dispatchCommand("team join " + team.getName() + " " + player.getName());
+		createBatch().join(team, player).apply();
 	}
 
 	/**
@@ -339,7 +471,7 @@ public class TeamManager {
 	 * @param players Players to add to the team.
 	 */
 	public static void addPlayersToTeam(Team team, Stream<Player> players) {
-		players.forEach(p -> addPlayerToTeam(team, p));
+		createBatch().join(team, players).apply();
 	}
 
 	/**
@@ -377,12 +509,12 @@ public class TeamManager {
 	}
 
 	/**
-	 * Remove the given player from its team. It equivalent to do in minecraft : <code>/team remove player.getName()</code>.
+	 * Remove the given player from its team. It equivalent to do in minecraft : <code>/team leave player.getName()</code>.
 	 * 
 	 * @param player The player to remove.
 	 */
 	public static void removePlayerFromTeam(Player player) {
-		BukkitManager.dispatchCommand("team leave " + player.getName());
+		createBatch().leave(player).apply();
 	}
 
 	/**
@@ -396,6 +528,8 @@ public class TeamManager {
 	 */
 	public static void modifyDisplayNameTeam(Team team, String newDisplayName) {
 		team.setDisplayName(newDisplayName);
+		INDEX.onDisplayName(team);
+		onModified();
 	}
 
 	/**
@@ -407,6 +541,8 @@ public class TeamManager {
 	 */
 	public static void modifyColorTeam(Team team, ChatColor color) {
 		team.setColor(color);
+		INDEX.onColor(team, color);
+		onModified();
 	}
 
 	/**
@@ -429,7 +565,9 @@ public class TeamManager {
 	 * @see #removeTeam(Team)
 	 */
 	public static void removeTeams(Stream<String> teamNames) {
-		teamNames.forEach(teamName -> removeTeam(teamName));
+		TeamBatch batch = createBatch();
+		teamNames.forEach(teamName -> batch.remove(teamName));
+		batch.apply();
 	}
 
 	/**
@@ -438,37 +576,57 @@ public class TeamManager {
 	 * @see #removeTeam(Stream)
 	 */
 	public static void removeAllTeam() {
-		removeTeams(getTeams().map(team -> team.getName()));
+		TeamBatch batch = createBatch();
+		getTeams().forEach(team -> batch.remove(team));
+		batch.apply();
 	}
 
 	/**
 	 * Dispatch all players currently logged into the server into teams. To simplify the way of using this method, it possible to put
-	 * -1 for <code>maxPlayerInTeam</code>. In that case, players are directly dispatched into the given teams.
+	 * -1 for <code>maxPlayerInTeam</code>. In that case, players are directly dispatched into the given teams. Players are shuffled
+	 * once and then dealt one by one to each team so that the number of players per team differs by at most one. All modifications
+	 * are applied on the scoreboard using only one {@link TeamBatch}.
 	 * 
 	 * @param teams           A list of team in which players are dispatched.
 	 * @param maxPlayerInTeam The max player allowed per team.
 	 * 
 	 * @throws UnsupportedOperationException If there are not enough players.
 	 * @throws UnsupportedOperationException If there are not enough teams.
+	 * 
+	 * @see RandomManager#getGenerator()
 	 */
 	public static void dispatchPlayerRandomlyInTeam(List<Team> teams, int maxPlayerInTeam) {
-		for (Team team : teams)
-			removeAllPlayersFromTeam(team);
+		dispatchPlayerRandomlyInTeam(teams, maxPlayerInTeam, RandomManager.getGenerator());
+	}
 
-		List<Player> players = PlayerManager.getPlayers().collect(Collectors.toList());
-		List<Team> copy = new ArrayList<Team>(teams);
+	/**
+	 * Dispatch all players currently logged into the server into teams using the given source of randomness. Using a seeded generator
+	 * makes the dispatch reproducible.
+	 * 
+	 * @param teams           A list of team in which players are dispatched.
+	 * @param maxPlayerInTeam The max player allowed per team, or -1 to dispatch players directly into the given teams.
+	 * @param random          The source of randomness.
+	 * 
+	 * @throws UnsupportedOperationException If there are not enough players.
+	 * @throws UnsupportedOperationException If there are not enough teams.
+	 * 
+	 * @see #dispatchPlayerRandomlyInTeam(List, int)
+	 */
+	public static void dispatchPlayerRandomlyInTeam(List<Team> teams, int maxPlayerInTeam, Random random) {
+		List<Player> players = new ArrayList<Player>(PlayerManager.getPlayersSnapshot());
+		List<Team> copy = RandomManager.mix(teams, random);
 
-		if (maxPlayerInTeam == -1)
-			dispatchPlayers(copy, players);
-		else {
+		if (maxPlayerInTeam != -1) {
 			checkEnoughPlayers(maxPlayerInTeam, players.size());
-			int nbTeam = checkEnoughTeam(maxPlayerInTeam, players.size(), copy.size());
-
-			for (int i = 0; i < teams.size() - nbTeam; i++)
-				copy.remove(RANDOM.nextInt(copy.size()));
+			copy = copy.subList(0, checkEnoughTeam(maxPlayerInTeam, players.size(), copy.size()));
+		} else if (copy.isEmpty())
+			throw new UnsupportedOperationException("There is not enough team");
 
-			dispatchPlayers(copy, players, maxPlayerInTeam);
-		}
+		TeamBatch batch = createBatch();
+		for (Team team : teams)
+			batch.clear(team);
+		dispatchPlayers(batch, copy, RandomManager.shuffle(players, random));
+		batch.apply();
 	}
 
 	/**
@@ -477,16 +635,11 @@ public class TeamManager {
 	 * @param <T>      The type of element in the list.
 	 * @param original The list to mix.
 	 * @return The randomly mixed list.
+	 * 
+	 * @see RandomManager#mix(List)
 	 */
 	public static <T> List<T> mix(List<T> original) {
-		List<T> randoms = new ArrayList<T>();
-		int size = original.size();
-		for (int i = 0; i < size; i++) {
-			T random = original.get(RANDOM.nextInt(original.size()));
-			randoms.add(random);
-			original.remove(random);
-		}
-		return randoms;
+		return RandomManager.mix(original);
 	}
 
 	/**
@@ -495,29 +648,26 @@ public class TeamManager {
 	 * @param list A list used to get a random element.
 	 * 
 	 * @return An element randomly chosen.
+	 * 
+	 * @see RandomManager#getRandom(List)
 	 */
 	public static <T> Optional<T> getRandom(List<T> list) {
-		if (list.size() == 0)
-			return Optional.empty();
-		Random rand = new Random();
-		return Optional.of(list.get(rand.nextInt(list.size())));
+		return RandomManager.getRandom(list);
 	}
 
 	/**
-	 * Get a random element from the specified list. The given list is filtered using the given predicate.
+	 * Get a random element from the specified list. The given list is filtered using the given predicate : elements that verify the
+	 * predicate are excluded from the selection. The list is not copied.
 	 * 
 	 * @param list      A stream used to get a random element.
 	 * @param predicate The filter applied on each element present in the specified list.
 	 * 
-	 * @return An element randomly chosen.
+	 * @return An element randomly chosen, or an empty optional if each element verifies the predicate.
+	 * 
+	 * @see RandomManager#getRandom(Iterable, Predicate)
 	 */
 	public static <T> Optional<T> getRandom(List<T> list, Predicate<T> predicate) {
-		if (list.size() == 0)
-			return Optional.empty();
-		Random rand = new Random();
-		List<T> copy = new ArrayList<>(list);
-		copy.removeIf(predicate);
-		return Optional.of(copy.get(rand.nextInt(copy.size())));
+		return RandomManager.getRandom(list, predicate.negate());
 	}
 
 	private static void checkEnoughPlayers(int maxPlayerInTeam, int nbPlayer) {
@@ -532,39 +682,18 @@ public class TeamManager {
 		return nbTeams;
 	}
 
-	private static void dispatchPlayers(List<Team> copy, List<Player> players, int maxPlayerInTeam) {
-		for (int i = 0; i < players.size(); i++) {
-			Team randomTeam = copy.get(RANDOM.nextInt(copy.size()));
-			addPlayerToTeam(randomTeam, players.get(i));
-			removeTeam(copy, randomTeam, maxPlayerInTeam);
-		}
-	}
-
-	private static void dispatchPlayers(List<Team> copy, List<Player> players) {
-		int quotient = players.size() / copy.size();
-		int reste = players.size() % copy.size();
-
-		for (Player player : players) {
-			int maxPlayer = quotient + (reste > 0 ? 1 : 0);
-
-			Team randomTeam;
-			boolean teamRemoved;
-			do {
-				randomTeam = copy.get(RANDOM.nextInt(copy.size()));
-			} while (teamRemoved = removeTeam(copy, randomTeam, maxPlayer));
-
-			addPlayerToTeam(randomTeam, player);
-
-			if (teamRemoved)
-				reste--;
-		}
+	private static void dispatchPlayers(TeamBatch batch, List<Team> teams, List<Player> players) {
+		// Teams have already been shuffled, the teams receiving one more player are then randomly chosen.
+		for (int i = 0; i < players.size(); i++)
+			batch.join(teams.get(i % teams.size()), players.get(i));
 	}
 
-	private static boolean removeTeam(List<Team> teams, Team randomTeam, int maxPlayer) {
-		boolean removed = getNumberOfPlayers(randomTeam) == maxPlayer;
-		if (removed)
-			teams.remove(randomTeam);
-		return removed;
+	private static Team registerTeam(String teamName, ChatColor color) {
+		Team team = getMainScoreboard().registerNewTeam(teamName);
+		if (color != null)
+			team.setColor(color);
+		INDEX.onColor(team, team.getColor());
+		return team;
 	}
 
 	private static Scoreboard getMainScoreboard() {
@@ -572,15 +701,15 @@ public class TeamManager {
 	}
 
 	private static void removePlayerFromTeam(Team team, Player player) {
-		team.removeEntry(player.getName());
+		createBatch().leave(team, player).apply();
 	}
 
 	private static void removePlayersFromTeam(Team team, Stream<Player> players) {
-		players.forEach(player -> removePlayerFromTeam(team, player));
+		createBatch().leave(team, players).apply();
 	}
 
 	private static void removeAllPlayersFromTeam(Team team) {
-		removePlayersFromTeam(team, getPlayers(team));
+		createBatch().clear(team).apply();
 	}
 
 	public static class ColleagueInfo {
@@ -599,6 +728,27 @@ public class TeamManager {
 			this.arrow = EArrows.getArrow(yaw);
 		}
 
+		protected ColleagueInfo(Player source, Player colleague, int distance, double yaw, boolean isInDifferentWorld) {
+			this.source = source;
+			this.colleague = colleague;
+			update(distance, yaw, isInDifferentWorld);
+		}
+
+		/**
+		 * Update the information about the colleague. This is used by the {@link ColleagueInfoEngine} to reuse the same object from one
+		 * tick to another.
+		 * 
+		 * @param distance           The new distance between the source player and the colleague.
+		 * @param yaw                The new yaw between the source player and the colleague.
+		 * @param isInDifferentWorld True if the source player and the colleague are in different world.
+		 */
+		protected void update(int distance, double yaw, boolean isInDifferentWorld) {
+			this.distance = distance;
+			this.yaw = yaw;
+			this.isInDifferentWorld = isInDifferentWorld;
+			this.arrow = EArrows.getArrow(yaw);
+		}
+
 		/**
 		 * @return The source player for this PlayerLocation.
 		 */
@@ -0,0 +1,238 @@
+package fr.pederobien.minecraft.managers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.UUID;
+
+import org.bukkit.ChatColor;
+import org.bukkit.GameMode;
+import org.bukkit.entity.Player;
+import org.bukkit.scoreboard.Scoreboard;
+import org.bukkit.scoreboard.Team;
+
+public class TeamSnapshot {
+	/**
+	 * The snapshot available before the first publication.
+	 */
+	public static final TeamSnapshot EMPTY = new TeamSnapshot(0, Collections.emptyList());
+
+	private long version;
+	private List<TeamInfo> teams;
+	private Map<String, TeamInfo> byName;
+	private Map<ChatColor, TeamInfo> byColor;
+	private Map<UUID, TeamInfo> byMember;
+
+	private TeamSnapshot(long version, List<TeamInfo> teams) {
+		this.version = version;
+		this.teams = Collections.unmodifiableList(teams);
+
+		Map<String, TeamInfo> byName = new HashMap<String, TeamInfo>();
+		Map<ChatColor, TeamInfo> byColor = new EnumMap<ChatColor, TeamInfo>(ChatColor.class);
+		Map<UUID, TeamInfo> byMember = new HashMap<UUID, TeamInfo>();
+		for (TeamInfo team : teams) {
+			byName.put(team.getName(), team);
+			byColor.putIfAbsent(team.getColor(), team);
+			for (UUID member : team.getMembers())
+				byMember.put(member, team);
+		}
+
+		this.byName = Collections.unmodifiableMap(byName);
+		this.byColor = Collections.unmodifiableMap(byColor);
+		this.byMember = Collections.unmodifiableMap(byMember);
+	}
+
+	/**
+	 * Create a snapshot of the teams registered on the main scoreboard. This method must be called from the main thread.
+	 *
+	 * @param version  The version of the snapshot.
+	 * @param excluded A player still logged into the server but that should not appear in the snapshot, for example a player leaving
+	 *                 the server, or null.
+	 *
+	 * @return The created snapshot.
+	 */
+	protected static TeamSnapshot create(long version, Player excluded) {
+		Map<Team, Builder> builders = new HashMap<Team, Builder>();
+		List<Builder> ordered = new ArrayList<Builder>();
+		TeamManager.getTeams().forEach(team -> {
+			Builder builder = new Builder(team);
+			builders.put(team, builder);
+			ordered.add(builder);
+		});
+
+		Scoreboard scoreboard = BukkitManager.getScoreboardManager().getMainScoreboard();
+		for (Player player : BukkitManager.getOnlinePlayers()) {
+			if (player.equals(excluded))
+				continue;
+
+			Team team = scoreboard.getEntryTeam(player.getName());
+			if (team == null)
+				continue;
+
+			Builder builder = builders.get(team);
+			if (builder != null)
+				builder.add(player);
+		}
+
+		List<TeamInfo> teams = new ArrayList<TeamInfo>(ordered.size());
+		for (Builder builder : ordered)
+			teams.add(builder.build());
+		return new TeamSnapshot(version, teams);
+	}
+
+	/**
+	 * @return The version of this snapshot. Each publication increments the version.
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * @return An unmodifiable list that contains each team registered when this snapshot has been created.
+	 */
+	public List<TeamInfo> getTeams() {
+		return teams;
+	}
+
+	/**
+	 * Get the team associated to the given name.
+	 *
+	 * @param name The name of the team.
+	 * @return An optional that contains the team associated to the name if it exists, an empty optional otherwise.
+	 */
+	public Optional<TeamInfo> getTeam(String name) {
+		return Optional.ofNullable(byName.get(name));
+	}
+
+	/**
+	 * Get the team associated to the given color.
+	 *
+	 * @param color The color of the team.
+	 * @return An optional that contains the team associated to the color if it exists, an empty optional otherwise.
+	 */
+	public Optional<TeamInfo> getTeam(ChatColor color) {
+		return Optional.ofNullable(byColor.get(color));
+	}
+
+	/**
+	 * Get the team in which the player associated to the given identifier is registered.
+	 *
+	 * @param member The unique identifier of a player.
+	 * @return An optional that contains the team of the player if registered in a team, an empty optional otherwise.
+	 */
+	public Optional<TeamInfo> getTeam(UUID member) {
+		return Optional.ofNullable(byMember.get(member));
+	}
+
+	@Override
+	public String toString() {
+		StringJoiner joiner = new StringJoiner(", ", "{", "}");
+		joiner.add("version:" + version);
+		joiner.add("teams:" + teams);
+		return joiner.toString();
+	}
+
+	public static class TeamInfo {
+		private String name, displayName;
+		private ChatColor color;
+		private Set<String> entries;
+		private Set<UUID> members;
+		private int[] counts;
+
+		private TeamInfo(String name, String displayName, ChatColor color, Set<String> entries, Set<UUID> members, int[] counts) {
+			this.name = name;
+			this.displayName = displayName;
+			this.color = color;
+			this.entries = Collections.unmodifiableSet(entries);
+			this.members = Collections.unmodifiableSet(members);
+			this.counts = counts;
+		}
+
+		/**
+		 * @return The name of the team.
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * @return The display name of the team.
+		 */
+		public String getDisplayName() {
+			return displayName;
+		}
+
+		/**
+		 * @return The color of the team.
+		 */
+		public ChatColor getColor() {
+			return color;
+		}
+
+		/**
+		 * @return An unmodifiable set that contains each entry of the team, including entries of players that are not logged into the
+		 *         server.
+		 */
+		public Set<String> getEntries() {
+			return entries;
+		}
+
+		/**
+		 * @return An unmodifiable set that contains the unique identifier of each player of the team logged into the server.
+		 */
+		public Set<UUID> getMembers() {
+			return members;
+		}
+
+		/**
+		 * Get the number of players of the team, logged into the server, who have the given game mode.
+		 *
+		 * @param mode The game mode of the players to count.
+		 * @return The number of players with the game mode.
+		 */
+		public int getNumberOfPlayers(GameMode mode) {
+			return counts[mode.ordinal()];
+		}
+
+		@Override
+		public String toString() {
+			StringJoiner joiner = new StringJoiner(", ", "{", "}");
+			joiner.add("name:" + name);
+			joiner.add("color:" + color.name());
+			joiner.add("members:" + members.size());
+			return joiner.toString();
+		}
+	}
+
+	private static class Builder {
+		private Team team;
+		private Set<UUID> members;
+		private int[] counts;
+
+		private Builder(Team team) {
+			this.team = team;
+			members = new HashSet<UUID>();
+			counts = new int[GameMode.values().length];
+		}
+
+		private void add(Player player) {
+			members.add(player.getUniqueId());
+			counts[player.getGameMode().ordinal()]++;
+		}
+
+		private TeamInfo build() {
+			// During a game mode change event, the game mode of the player has not been modified yet but the index is up to date.
+			if (TeamManager.getIndex().isAvailable())
+				for (GameMode mode : GameMode.values())
+					counts[mode.ordinal()] = TeamManager.getIndex().getNumberOfPlayers(team, mode);
+			return new TeamInfo(team.getName(), team.getDisplayName(), team.getColor(), new HashSet<String>(team.getEntries()), members, counts);
+		}
+	}
+}
@@ -811,9 +811,23 @@ public class WorldManager {
 	 * @return a stream that contains players currently residing in the specified world.
 	 */
 	public static Stream<Player> getPlayerInWorld(World world) {
+		if (PlayerManager.getRegistry().isAvailable())
+			return new ArrayList<Player>(PlayerManager.getRegistry().getPlayers(world)).stream();
 		return world.getPlayers().stream();
 	}
 
+	/**
+	 * Get the number of players in the given world.
+	 * 
+	 * @param world The world used to count its players.
+	 * @return The number of players currently residing in the specified world.
+	 */
+	public static int getNumberOfPlayersInWorld(World world) {
+		if (PlayerManager.getRegistry().isAvailable())
+			return PlayerManager.getRegistry().getPlayers(world).size();
+		return world.getPlayers().size();
+	}
+
 	/**
 	 * @return A stream that contains all players currently in the surface world.
 	 */
@@ -844,7 +858,10 @@ public class WorldManager {
 	public static Stream<Player> getPlayersInWorld(World... worlds) {
 		List<Player> players = new ArrayList<Player>();
 		for (World world : worlds)
-			players.addAll(world.getPlayers());
+			if (PlayerManager.getRegistry().isAvailable())
+				players.addAll(PlayerManager.getRegistry().getPlayers(world));
+			else
+				players.addAll(world.getPlayers());
 		return players.stream();
 	}
 
@@ -917,10 +934,22 @@ public class WorldManager {
 	}
 
 	public static double getYaw(Player player, Location location) {
-		int xrel = location.getBlockX() - player.getLocation().getBlockX();
-		int zrel = location.getBlockZ() - player.getLocation().getBlockZ();
+		Location playerLocation = player.getLocation();
+		return getYaw(location.getBlockX() - playerLocation.getBlockX(), location.getBlockZ() - playerLocation.getBlockZ(), playerLocation.getYaw());
+	}
+
+	/**
+	 * Get the yaw between a player and a location using the relative block coordinates of the location.
+	 * 
+	 * @param xrel The X block coordinate of the location minus the X block coordinate of the player.
+	 * @param zrel The Z block coordinate of the location minus the Z block coordinate of the player.
+	 * @param yaw  The yaw of the player.
+	 * 
+	 * @return The yaw between the player and the location. This angle is in range [-180;180].
+	 */
+	public static double getYaw(int xrel, int zrel, double yaw) {
 		float thetap1p2 = (float) Math.toDegrees(Math.atan2(xrel, zrel));
-		double yawP1 = player.getLocation().getYaw();
+		double yawP1 = yaw;
 
 		// Bring back yawP1 between [-180;180]
 		yawP1 = yawP1 > 180 ? yawP1 - 360 : yawP1 < -180 ? yawP1 + 360 : yawP1;